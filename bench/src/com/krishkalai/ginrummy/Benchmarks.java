@@ -0,0 +1,244 @@
+package com.krishkalai.ginrummy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the hot paths: meld(), calculateDeadwood(), DeadwoodBatch, SuitCanonicalizer,
+ * ClosedDeck.shuffle(), Deck.removeFirstCard(), PlayerHand.toString() and a whole CPU-vs-CPU game.
+ *
+ * Every benchmark runs in a JVM of its own, and reports the average time per operation.
+ * Run with JMH's -prof gc for the bytes allocated per operation (gc.alloc.rate.norm).
+ * The hand benchmarks cycle through the fixed-seed corpora of HandCorpus, picked by the
+ * "corpus" parameter, so results compare between releases.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class Benchmarks {
+    // Hands in each corpus; a power of two so an operation index can be masked.
+    private final static int CORPUS = 4096;
+    private final static long SEED = 20240101L;
+
+    /**
+     * A corpus of hand masks, and a hand to load them into.
+     */
+    @State(Scope.Thread)
+    public static class Hands {
+        @Param({"random10", "random11", "adversarial10", "adversarial11"})
+        public String corpus;
+
+        long[] masks;
+        PlayerHand hand;
+        byte[] ids;
+        int index;
+
+        @Setup
+        public void setUp() {
+            masks = corpus(corpus);
+            hand = new PlayerHand();
+            ids = new byte[Deck.CAPACITY];
+            index = 0;
+        }
+
+        /**
+         * Loads the next hand of the corpus.
+         * @return the hand, holding the cards of the next mask.
+         */
+        PlayerHand next() {
+            int count = HandCorpus.ids(masks[index++ & (CORPUS - 1)], ids);
+            hand.reset();
+            hand.addCards(ids, 0, count);
+            return hand;
+        }
+
+        /**
+         * Returns the next hand mask of the corpus.
+         * @return the hand mask.
+         */
+        long nextMask() {
+            return masks[index++ & (CORPUS - 1)];
+        }
+    }
+
+    /**
+     * A corpus of hands that are already melded, to be shown.
+     */
+    @State(Scope.Thread)
+    public static class MeldedHands {
+        PlayerHand[] hands;
+        int index;
+
+        @Setup
+        public void setUp() {
+            long[] masks = HandCorpus.adversarial(SEED + 3, 256, 11);
+            byte[] ids = new byte[Deck.CAPACITY];
+            hands = new PlayerHand[masks.length];
+            for (int i = 0; i < hands.length; i++) {
+                int count = HandCorpus.ids(masks[i], ids);
+                hands[i] = new PlayerHand();
+                hands[i].addCards(ids, 0, count);
+                hands[i].meld();
+            }
+            index = 0;
+        }
+    }
+
+    /**
+     * The random 10-card corpus and the deadwoods DeadwoodBatch writes for it.
+     */
+    @State(Scope.Thread)
+    public static class Batch {
+        long[] hands;
+        int[] deadwoods;
+
+        @Setup
+        public void setUp() {
+            hands = corpus("random10");
+            deadwoods = new int[CORPUS];
+        }
+    }
+
+    /**
+     * A closed deck shuffled by the generator of the "generator" parameter.
+     */
+    @State(Scope.Thread)
+    public static class Shuffled {
+        @Param({"SplittableRandom", "Xoshiro256PlusPlus"})
+        public String generator;
+
+        ClosedDeck deck;
+
+        @Setup
+        public void setUp() {
+            deck = generator.equals("SplittableRandom") ? new ClosedDeck(SEED)
+                    : new ClosedDeck(RandomGenerator.of(generator));
+        }
+    }
+
+    /**
+     * A closed deck that is dealt from, and refilled with the whole deck when it runs out.
+     */
+    @State(Scope.Thread)
+    public static class Dealt {
+        ClosedDeck deck;
+        byte[] full;
+
+        @Setup
+        public void setUp() {
+            deck = new ClosedDeck(SEED);
+            full = new byte[Deck.CAPACITY];
+            for (int i = 0; i < full.length; i++) {
+                full[i] = (byte) (i + 1);
+            }
+        }
+    }
+
+    /**
+     * An engine of greedy CPU against greedy CPU, dealt a new game for every operation.
+     */
+    @State(Scope.Thread)
+    public static class Engine {
+        GameEngine engine;
+        long game;
+
+        @Setup
+        public void setUp() {
+            engine = new GameEngine(new GreedyStrategy(), new GreedyStrategy());
+            game = 0;
+        }
+    }
+
+    @Benchmark
+    public int meld(Hands hands) {
+        PlayerHand hand = hands.next();
+        hand.meld();
+        return hand.getLastCard().getCardID();
+    }
+
+    @Benchmark
+    public int calculateDeadwood(Hands hands) {
+        return hands.next().calculateDeadwood();
+    }
+
+    /**
+     * Scores the whole random 10-card corpus on this thread.
+     */
+    @Benchmark
+    @OperationsPerInvocation(CORPUS)
+    public int deadwoodBatch(Batch batch) {
+        DeadwoodBatch.deadwood(batch.hands, batch.deadwoods, 0, CORPUS);
+        return batch.deadwoods[CORPUS - 1];
+    }
+
+    @Benchmark
+    public long canonical(Hands hands) {
+        return SuitCanonicalizer.canonical(hands.nextMask());
+    }
+
+    @Benchmark
+    public long rank(Hands hands) {
+        return SuitCanonicalizer.rank(hands.nextMask());
+    }
+
+    @Benchmark
+    public int shuffle(Shuffled shuffled) {
+        shuffled.deck.shuffle();
+        return shuffled.deck.getLastCard().getCardID();
+    }
+
+    @Benchmark
+    public int removeFirstCard(Dealt dealt) {
+        if (dealt.deck.length() == 0) {
+            dealt.deck.reset();
+            dealt.deck.addCards(dealt.full, 0, dealt.full.length);
+        }
+        return dealt.deck.removeFirstCard().getCardID();
+    }
+
+    @Benchmark
+    public int handToString(MeldedHands melded) {
+        return melded.hands[melded.index++ & (melded.hands.length - 1)].toString().length();
+    }
+
+    @Benchmark
+    public int greedyVsGreedy(Engine engine) {
+        engine.engine.reset(SEED + engine.game++);
+        return engine.engine.play().getTurns();
+    }
+
+    /**
+     * Returns a corpus by name: "random" or "adversarial" and the number of cards in each hand.
+     * @param name The corpus name, e.g. "random10".
+     * @return the hand masks.
+     */
+    static long[] corpus(String name) {
+        switch (name) {
+            case "random10":
+                return HandCorpus.random(SEED, CORPUS, 10);
+            case "random11":
+                return HandCorpus.random(SEED + 1, CORPUS, 11);
+            case "adversarial10":
+                return HandCorpus.adversarial(SEED + 2, CORPUS, 10);
+            case "adversarial11":
+                return HandCorpus.adversarial(SEED + 3, CORPUS, 11);
+            default:
+                throw new IllegalArgumentException("Unknown corpus " + name);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.krishkalai.ginrummy;
+
+import java.util.SplittableRandom;
+
+/**
+ * Fixed-seed hand corpora for the benchmarks, as hand masks (see HandMask).
+ * The same seed always gives the same hands, so results compare between releases.
+ */
+final class HandCorpus {
+    private HandCorpus() {
+    }
+
+    /**
+     * Returns uniformly random hands.
+     * @param seed The seed of the corpus.
+     * @param count The number of hands.
+     * @param cards The number of cards in each hand.
+     * @return the hand masks.
+     */
+    static long[] random(long seed, int count, int cards) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] hands = new long[count];
+        for (int i = 0; i < count; i++) {
+            hands[i] = fill(0, cards, random);
+        }
+        return hands;
+    }
+
+    /**
+     * Returns hands where runs and sets compete for the same cards.
+     * Each hand holds a 3 by 3 grid: three face values in a row in three suits,
+     * so every card is both in a run (its suit) and in a set (its face value).
+     * The fourth suit of one face value and random cards fill the rest.
+     * @param seed The seed of the corpus.
+     * @param count The number of hands.
+     * @param cards The number of cards in each hand (10 or more).
+     * @return the hand masks.
+     */
+    static long[] adversarial(long seed, int count, int cards) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] hands = new long[count];
+        for (int i = 0; i < count; i++) {
+            int face = random.nextInt(11);
+            int left_out = random.nextInt(4);
+            long hand = 0;
+            for (int suit = 0; suit < 4; suit++) {
+                if (suit != left_out) {
+                    hand |= 7L << (suit * 13 + face);
+                }
+            }
+            hand |= 1L << (left_out * 13 + face + random.nextInt(3));
+            hands[i] = fill(hand, cards, random);
+        }
+        return hands;
+    }
+
+    /**
+     * Writes the card IDs of a hand into an array, in card ID order.
+     * @param hand The hand mask.
+     * @param ids The array to fill.
+     * @return the number of card IDs written.
+     */
+    static int ids(long hand, byte[] ids) {
+        int count = 0;
+        for (long cards = hand; cards != 0; cards &= cards - 1) {
+            ids[count++] = (byte) (Long.numberOfTrailingZeros(cards) + 1);
+        }
+        return count;
+    }
+
+    private static long fill(long hand, int cards, SplittableRandom random) {
+        while (Long.bitCount(hand) < cards) {
+            hand |= 1L << random.nextInt(52);
+        }
+        return hand;
+    }
+}
@@ -1,8 +1,9 @@
-
 /**
- * Constructs a card with a suit and face value.
+ * An immutable card with a suit and face value.
+ * There is exactly one instance per card (a flyweight), looked up by card ID with of(),
+ * so cards can be shared between games and threads and compared by identity.
  */
-class Card {
+final class Card {
     final static short SPADES = 0;
     final static short HEARTS = 1;
     final static short CLUBS = 2;
@@ -14,34 +15,55 @@ class Card {
     final static short QUEEN = 12;
     final static short KING = 13;
 
-    // Magic number: Default value for marker.
-    private final int defualt_marker = 13;
+    // The 52 canonical cards and their labels, indexed by card ID (index 0 is unused).
+    private final static Card[] CARDS = new Card[53];
+    private final static String[] LABELS = new String[53];
+
+    static {
+        LABELS[0] = "*";
+        for (int suit = SPADES; suit <= DIAMOND; suit++) {
+            for (int face_value = ACE; face_value <= KING; face_value++) {
+                Card card = new Card(suit, face_value);
+                CARDS[card.card_id] = card;
+                LABELS[card.card_id] = buildLabel(suit, face_value);
+            }
+        }
+    }
 
-    private int suit;
-    private int face_value;
-    private int weight;
-    private int card_id;
-    private int seq_group;
-    private int collate_seq_grp;
+    private final int suit;
+    private final int face_value;
+    private final int weight;
+    private final int card_id;
 
     /**
      * Initializes the card to a new card with given values
      * @param suit The suit of the card, represented as an integer.
      * @param face_value The face value of the card, repersented as an integer
      */
-    Card (int suit, int face_value) {
+    private Card (int suit, int face_value) {
         this.suit = suit;
         this.face_value = face_value;
         card_id = face_value + suit * 13;
+        weight = Math.min(face_value, 10);
+    }
 
-        this.weight = face_value;
-        if (face_value >= 10) {
-            this.weight = 10;
-        }
-
-        seq_group = defualt_marker;
+    /**
+     * Returns the card with a card ID.
+     * @param card_id The card ID, between 1 and 52.
+     * @return the canonical card.
+     */
+    static Card of(int card_id) {
+        return CARDS[card_id];
+    }
 
-        collate_seq_grp = 0;
+    /**
+     * Returns the card with a suit and face value.
+     * @param suit The suit of the card.
+     * @param face_value The face value of the card.
+     * @return the canonical card.
+     */
+    static Card of(int suit, int face_value) {
+        return CARDS[face_value + suit * 13];
     }
 
         int getSuit() {
@@ -56,59 +78,57 @@ class Card {
             return weight;
         }
 
-        int getSeqGrp() {
-            return seq_group;
-        }
-
         int getCardID () { return card_id; }
 
-        int getCollateSeqGrp () { return  collate_seq_grp; }
-
-        void setSeqGrp(int state) {
-            seq_group = state;
-        }
-
-        void setCollateSeqGrp (int value) { collate_seq_grp = value; }
+    /**
+     * Returns the label of a card ID from the precomputed table, such as "10H" or "AS".
+     * @param card_id The card ID.
+     * @return the label.
+     */
+    static String label(int card_id) {
+        return LABELS[card_id];
+    }
 
     public String toString() {
-        String ret_str = "";
+        return LABELS[card_id];
+    }
+
+    /**
+     * Builds the label of a card: the face value, then the suit.
+     */
+    private static String buildLabel(int suit, int face_value) {
+        String ret_str;
 
         // Add face value to string
         switch (face_value) {
             case ACE:
-                ret_str += "A";
+                ret_str = "A";
                 break;
             case JACK:
-                ret_str += "J";
+                ret_str = "J";
                 break;
             case QUEEN:
-                ret_str += "Q";
+                ret_str = "Q";
                 break;
             case KING:
-                ret_str += "K";
+                ret_str = "K";
                 break;
             default:
-                ret_str += face_value;
+                ret_str = String.valueOf(face_value);
         }
 
         // Add suit to string
         switch (suit) {
             case SPADES:
-                ret_str += "S";
-                break;
+                return ret_str + "S";
             case DIAMOND:
-                ret_str += "D";
-                break;
+                return ret_str + "D";
             case CLUBS:
-                ret_str += "C";
-                break;
+                return ret_str + "C";
             case HEARTS:
-                ret_str += "H";
-                break;
+                return ret_str + "H";
             default:
                 return "*";
         }
-
-        return ret_str;
     }
 }
@@ -0,0 +1,254 @@
+/**
+ * Estimates, for every card the player has not seen, how likely the opponent holds it.
+ *
+ * Each unseen card has a weight, and the opponent's unknown cards are spread over the
+ * unseen cards in proportion to the weights. Events move the weights of the cards that
+ * would meld with the event's card (same face value, or up to two steps in the same suit):
+ * a card the opponent picks up makes its neighbours more likely, and a card it drops or
+ * passes on makes them less likely. An event touches at most 7 neighbours and the total
+ * weight is kept up to date, so every event and query is O(1) on primitive arrays.
+ */
+class CardTracker {
+    // Where a card is, as far as the player knows.
+    final static byte UNSEEN = 0;
+    final static byte MINE = 1;
+    final static byte PILE = 2;
+    final static byte OPPONENT = 3;
+
+    // Weight factors for the neighbours of an event's card.
+    private final static double PICKED_UP = 2.0;
+    private final static double DISCARDED = 0.5;
+    private final static double PASSED = 0.7;
+
+    private final byte[] location;
+    private final double[] weight;
+    private double unseen_weight;
+    private int opponent_known;
+
+    // The last snapshot seen by observe().
+    private long last_hand;
+    private long last_pile;
+    private long last_known;
+    private int my_last_discard;
+
+    /**
+     * Initializes the tracker with every card unseen and equally likely.
+     */
+    CardTracker() {
+        location = new byte[53];
+        weight = new double[53];
+        reset();
+    }
+
+    /**
+     * Forgets everything, for a new game.
+     */
+    void reset() {
+        for (int card_id = 1; card_id <= 52; card_id++) {
+            location[card_id] = UNSEEN;
+            weight[card_id] = 1.0;
+        }
+        unseen_weight = 52;
+        opponent_known = 0;
+        last_hand = 0;
+        last_pile = 0;
+        last_known = 0;
+        my_last_discard = 0;
+    }
+
+    /**
+     * Records a card the player holds.
+     * @param card_id The card ID.
+     */
+    void mine(int card_id) {
+        move(card_id, MINE);
+    }
+
+    /**
+     * Records a card put on the open deck by the player, or face up at the deal.
+     * @param card_id The card ID.
+     */
+    void pile(int card_id) {
+        move(card_id, PILE);
+    }
+
+    /**
+     * Records that the opponent drew a card from the open deck.
+     * @param card_id The card ID.
+     */
+    void opponentPickedUp(int card_id) {
+        move(card_id, OPPONENT);
+        scaleNeighbours(card_id, PICKED_UP);
+    }
+
+    /**
+     * Records that the opponent dropped a card to the open deck.
+     * @param card_id The card ID.
+     */
+    void opponentDiscarded(int card_id) {
+        move(card_id, PILE);
+        scaleNeighbours(card_id, DISCARDED);
+    }
+
+    /**
+     * Records that the opponent drew from the closed deck instead of taking the open card.
+     * @param card_id The card ID of the open card it passed on.
+     */
+    void opponentPassed(int card_id) {
+        scaleNeighbours(card_id, PASSED);
+    }
+
+    /**
+     * Updates the tracker from a new snapshot by turning the differences with the previous one
+     * into events. A strategy calls this at every decision.
+     * @param state The snapshot.
+     */
+    void observe(GameState state) {
+        long hand = state.getHand();
+        long pile = state.getDiscardPile();
+        long known = state.getOpponentKnown();
+
+        for (long cards = hand & ~last_hand; cards != 0; cards &= cards - 1) {
+            mine(Long.numberOfTrailingZeros(cards) + 1);
+        }
+
+        // The player's own drops since the last snapshot.
+        for (long cards = last_hand & ~hand; cards != 0; cards &= cards - 1) {
+            int card_id = Long.numberOfTrailingZeros(cards) + 1;
+            pile(card_id);
+            my_last_discard = card_id;
+        }
+
+        for (long cards = known & ~last_known; cards != 0; cards &= cards - 1) {
+            opponentPickedUp(Long.numberOfTrailingZeros(cards) + 1);
+        }
+
+        long dropped = pile & ~last_pile & ~last_hand;
+        boolean first = last_pile == 0 && last_hand == 0;
+        for (long cards = dropped; cards != 0; cards &= cards - 1) {
+            int card_id = Long.numberOfTrailingZeros(cards) + 1;
+            if (first) {
+                pile(card_id);
+            }
+            else {
+                opponentDiscarded(card_id);
+            }
+        }
+
+        // The player's last drop is still in the open deck under a new card: the opponent passed on it.
+        if (my_last_discard != 0 && (pile & HandMask.bitOf(my_last_discard)) != 0
+                && state.getOpenCardID() != my_last_discard && (hand & HandMask.bitOf(my_last_discard)) == 0) {
+            opponentPassed(my_last_discard);
+            my_last_discard = 0;
+        }
+
+        last_hand = hand;
+        last_pile = pile;
+        last_known = known;
+    }
+
+    /**
+     * Returns where a card is, as far as the player knows.
+     * @param card_id The card ID.
+     * @return UNSEEN, MINE, PILE or OPPONENT.
+     */
+    byte getLocation(int card_id) {
+        return location[card_id];
+    }
+
+    /**
+     * Returns the probability that the opponent holds a card.
+     * @param card_id The card ID.
+     * @return a value between 0 and 1.
+     */
+    double opponentProbability(int card_id) {
+        if (location[card_id] == OPPONENT) {
+            return 1.0;
+        }
+        if (location[card_id] != UNSEEN || unseen_weight <= 0) {
+            return 0.0;
+        }
+        int slots = Math.max(0, 10 - opponent_known);
+        return Math.min(1.0, slots * weight[card_id] / unseen_weight);
+    }
+
+    /**
+     * Returns the probability that a card is in the closed deck.
+     * @param card_id The card ID.
+     * @return a value between 0 and 1.
+     */
+    double stockProbability(int card_id) {
+        if (location[card_id] != UNSEEN) {
+            return 0.0;
+        }
+        return 1.0 - opponentProbability(card_id);
+    }
+
+    /**
+     * Returns how useful a card would be to the opponent if dropped:
+     * the expected number of its neighbours the opponent holds.
+     * @param card_id The card ID.
+     * @return a value between 0 and 7.
+     */
+    double danger(int card_id) {
+        int index = card_id - 1;
+        int face = index % 13;
+        double sum = 0;
+
+        for (int other = face; other < 52; other += 13) {
+            if (other != index) {
+                sum += opponentProbability(other + 1);
+            }
+        }
+        for (int step = -2; step <= 2; step++) {
+            if (step != 0 && face + step >= 0 && face + step <= 12) {
+                sum += opponentProbability(card_id + step);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Moves a card to a known location and takes it out of the unseen weight.
+     */
+    private void move(int card_id, byte where) {
+        byte from = location[card_id];
+        if (from == UNSEEN) {
+            unseen_weight -= weight[card_id];
+        }
+        if (from == OPPONENT) {
+            opponent_known--;
+        }
+        if (where == OPPONENT) {
+            opponent_known++;
+        }
+        location[card_id] = where;
+    }
+
+    /**
+     * Scales the weight of the unseen cards that would meld with a card.
+     */
+    private void scaleNeighbours(int card_id, double factor) {
+        int index = card_id - 1;
+        int face = index % 13;
+
+        for (int other = face; other < 52; other += 13) {
+            if (other != index) {
+                scale(other + 1, factor);
+            }
+        }
+        for (int step = -2; step <= 2; step++) {
+            if (step != 0 && face + step >= 0 && face + step <= 12) {
+                scale(card_id + step, factor);
+            }
+        }
+    }
+
+    private void scale(int card_id, double factor) {
+        if (location[card_id] == UNSEEN) {
+            double old_weight = weight[card_id];
+            weight[card_id] = old_weight * factor;
+            unseen_weight += weight[card_id] - old_weight;
+        }
+    }
+}
@@ -1,39 +1,99 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
+/**
+ * The closed deck, shuffled by a random generator the deck owns.
+ * A seed always means a SplittableRandom, which is what game records replay (see GameRecord);
+ * any other RandomGenerator, such as RandomGenerator.of("Xoshiro256PlusPlus"), can be given
+ * instead for decks that need not be replayed.
+ */
 class ClosedDeck extends Deck{
+    private long seed;
+    private RandomGenerator random;
+
     /**
-     * Initializes the deck with 52 unique cards and shuffle.
+     * Initializes the deck with 52 unique cards and shuffle with a random seed.
      */
     ClosedDeck() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Initializes the deck with 52 unique cards and shuffle.
+     * The same seed always gives the same order, for replaying a game.
+     * @param seed The seed of the deck's random generator.
+     */
+    ClosedDeck(long seed) {
         super();
+        reset(seed);
+    }
+
+    /**
+     * Initializes the deck with 52 unique cards and shuffles them with a generator.
+     * @param random The generator the deck shuffles with from now on.
+     */
+    ClosedDeck(RandomGenerator random) {
+        super();
+        reset(random);
+    }
+
+    /**
+     * Puts all 52 cards back in order and shuffles them from a new seed,
+     * so the deck can be reused for another game.
+     * @param seed The seed of the deck's random generator.
+     */
+    void reset(long seed) {
+        reset(new SplittableRandom(seed));
+        this.seed = seed;
+    }
+
+    /**
+     * Puts all 52 cards back in order and shuffles them with a generator,
+     * so the deck can be reused for another game.
+     * @param random The generator the deck shuffles with from now on.
+     */
+    void reset(RandomGenerator random) {
+        reset();
+        this.seed = 0;
+        this.random = random;
 
         // Construct deck of cards in order
-        for (int suit = 0; suit <= 3; suit++) {
-            for (int face_value = 1; face_value <= Card.KING; face_value++) {
-                deck.add(new Card(suit, face_value));
-            }
+        for (int card_id = 1; card_id <= CAPACITY; card_id++) {
+            cards[card_id - 1] = (byte) card_id;
         }
+        size = CAPACITY;
 
         shuffle();
     }
 
+    /**
+     * Returns the seed the deck was made with.
+     * @return the seed, or 0 if the deck was given a generator instead.
+     */
+    long getSeed() {
+        return seed;
+    }
+
     /**
      * Shuffles the deck with whatever cards is in the deck.
+     * The card IDs are shuffled in place in the deck's buffer.
      */
     void shuffle() {
-        for (int i = deck.size()-1; i > 1; i--) {
-            int random_value = (int)(Math.random() * i - 1);
-            swap(i, random_value);
-        }
+        compact();
+        Shuffler.shuffle(cards, size, random);
     }
 
     /**
-     * Swaps two cards in the ArrayList.
-     * @param index1 the index of the first card
-     * @param index2 the index of the second card
+     * Does the pre-game deal: 10 cards to each player, and one card to the open deck.
+     * Each hand gets its 10 cards as one block from the front of the deck.
+     * @param first The hand of the player who moves first.
+     * @param second The hand of the other player.
+     * @param open_deck The open deck.
      */
-    private void swap(int index1, int index2) {
-        Card temp = deck.get(index1);
-        deck.set(index1, deck.get(index2));
-        deck.set(index2, temp);
+    void deal(PlayerHand first, PlayerHand second, OpenDeck open_deck) {
+        dealTo(first, 10);
+        dealTo(second, 10);
+        dealTo(open_deck, 1);
     }
 }
@@ -0,0 +1,135 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scores the least deadwood of many hands at once, as MeldTable.deadwood() would one by one.
+ *
+ * The hands are cut into blocks, and each block goes through three flat loops over arrays:
+ * the first splits every hand into its four suit patterns and its set face values (one array
+ * each), the second adds up the run deadwood of the four patterns from MeldTable's table, and
+ * the third scores again the few hands that have 3 cards of a face value. The first two loops
+ * have no branches and no calls, so the JIT unrolls them and keeps the table in cache; only
+ * the hands that may hold a set take the recursive path. Large batches are split across the
+ * cores with fork-join tasks.
+ */
+final class DeadwoodBatch {
+    // The hands of one pass of the loops; the arrays of a block fit in the L1 cache.
+    final static int BLOCK = 1024;
+
+    // A fork-join task does at least this many hands on its own.
+    final static int MIN_TASK = 1 << 14;
+
+    private final static ThreadLocal<int[][]> SCRATCH = ThreadLocal.withInitial(() -> new int[6][BLOCK]);
+
+    private DeadwoodBatch() {
+    }
+
+    /**
+     * Scores every hand in parallel on the common fork-join pool.
+     * @param hands The hand masks.
+     * @param deadwoods Filled with the least deadwood of the matching hand.
+     */
+    static void deadwood(long[] hands, int[] deadwoods) {
+        deadwood(hands, deadwoods, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Scores every hand in parallel.
+     * @param hands The hand masks.
+     * @param deadwoods Filled with the least deadwood of the matching hand.
+     * @param pool The pool to run on.
+     */
+    static void deadwood(long[] hands, int[] deadwoods, ForkJoinPool pool) {
+        if (deadwoods.length < hands.length) {
+            throw new IllegalArgumentException("Room for " + deadwoods.length + " results, not " + hands.length);
+        }
+        if (hands.length <= MIN_TASK) {
+            deadwood(hands, deadwoods, 0, hands.length);
+        }
+        else {
+            pool.invoke(new Task(hands, deadwoods, 0, hands.length));
+        }
+    }
+
+    /**
+     * Scores a range of hands on the calling thread.
+     * @param hands The hand masks.
+     * @param deadwoods Filled with the least deadwood of the matching hand.
+     * @param from The index of the first hand.
+     * @param to The index after the last hand.
+     */
+    static void deadwood(long[] hands, int[] deadwoods, int from, int to) {
+        int[][] scratch = SCRATCH.get();
+        for (int start = from; start < to; start += BLOCK) {
+            scoreBlock(hands, deadwoods, start, Math.min(BLOCK, to - start), scratch);
+        }
+    }
+
+    private static void scoreBlock(long[] hands, int[] deadwoods, int start, int count, int[][] scratch) {
+        int[] p0 = scratch[0];
+        int[] p1 = scratch[1];
+        int[] p2 = scratch[2];
+        int[] p3 = scratch[3];
+        int[] sets = scratch[4];
+        int[] with_sets = scratch[5];
+        byte[] run = MeldTable.RUN_DEADWOOD;
+
+        // The suit patterns and set face values, as in MeldTable.setRanks().
+        for (int i = 0; i < count; i++) {
+            long hand = hands[start + i];
+            int a = (int) hand & 0x1FFF;
+            int b = (int) (hand >>> 13) & 0x1FFF;
+            int c = (int) (hand >>> 26) & 0x1FFF;
+            int d = (int) (hand >>> 39) & 0x1FFF;
+            p0[i] = a;
+            p1[i] = b;
+            p2[i] = c;
+            p3[i] = d;
+            sets[i] = (a & b & (c | d)) | (c & d & (a | b));
+        }
+
+        // Runs only: exact for every hand without a possible set. The hands with one are
+        // listed without a branch: every index is written, and only those with sets are kept.
+        int listed = 0;
+        for (int i = 0; i < count; i++) {
+            deadwoods[start + i] = run[p0[i]] + run[p1[i]] + run[p2[i]] + run[p3[i]];
+            with_sets[listed] = i;
+            listed += (sets[i] | -sets[i]) >>> 31;
+        }
+
+        for (int k = 0; k < listed; k++) {
+            int i = with_sets[k];
+            deadwoods[start + i] = MeldTable.evaluate(hands[start + i], sets[i], 0);
+        }
+    }
+
+    /**
+     * Splits a range in halves until it is small enough to score on one thread.
+     */
+    private final static class Task extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final long[] hands;
+        private final int[] deadwoods;
+        private final int from;
+        private final int to;
+
+        Task(long[] hands, int[] deadwoods, int from, int to) {
+            this.hands = hands;
+            this.deadwoods = deadwoods;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_TASK) {
+                deadwood(hands, deadwoods, from, to);
+                return;
+            }
+            // Split on a block boundary.
+            int middle = from + ((to - from) / 2 + BLOCK - 1) / BLOCK * BLOCK;
+            invokeAll(new Task(hands, deadwoods, from, middle), new Task(hands, deadwoods, middle, to));
+        }
+    }
+}
@@ -0,0 +1,301 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A precomputed table of the least deadwood of every hand of one size, in a memory-mapped file.
+ * The deadwood is MeldTable.handDeadwood()'s: a hand of more than 10 cards is scored after
+ * its best discard, as PlayerHand.calculateDeadwood() scores it.
+ *
+ * Suits do not matter to melds, so a hand has the deadwood of its canonical form (see
+ * SuitCanonicalizer). Only canonical hands are stored, each at its dense rank, so a lookup is
+ * a sort of four suit patterns, a few table reads and one byte read, and the file holds one byte
+ * per canonical hand: 671 MB for 10 cards, against the 15.8 GB of C(52, 10) hands.
+ * It is never read whole: the pages a workload touches come from the page cache.
+ *
+ * The file is mapped in windows of 1 GB, off the Java heap, so opening it costs no time and
+ * it adds nothing to the garbage collector's work. An entry holds the deadwood + 1, and 0 for a
+ * hand that was not written, which lookup() answers from MeldTable instead.
+ * Version 2 stored the deadwood before any discard, which is wrong for more than 10 cards.
+ *
+ * File layout:
+ *   bytes 0-1   magic "DW"
+ *   byte  2     format version (3)
+ *   byte  3     the number of cards in a hand
+ *   bytes 4-11  the number of entries (big-endian)
+ *   bytes 12-15 unused, 0
+ *   then one byte per entry.
+ */
+final class DeadwoodStore implements Closeable {
+    final static byte MAGIC_0 = 'D';
+    final static byte MAGIC_1 = 'W';
+    final static byte VERSION = 3;
+    final static int HEADER_SIZE = 16;
+
+    private final static int WINDOW_BITS = 30;
+    private final static long WINDOW = 1L << WINDOW_BITS;
+
+    // PATTERNS[c]: every 13-bit suit pattern with c cards, in increasing order.
+    private final static int[][] PATTERNS = new int[14][];
+
+    // The store calculateDeadwood() reads from, if any.
+    private static volatile DeadwoodStore installed;
+
+    static {
+        int[] counts = new int[14];
+        for (int pattern = 0; pattern < 8192; pattern++) {
+            counts[Integer.bitCount(pattern)]++;
+        }
+        for (int c = 0; c <= 13; c++) {
+            PATTERNS[c] = new int[counts[c]];
+            counts[c] = 0;
+        }
+        for (int pattern = 0; pattern < 8192; pattern++) {
+            int c = Integer.bitCount(pattern);
+            PATTERNS[c][counts[c]++] = pattern;
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] windows;
+    private final int cards;
+    private final long entries;
+
+    private DeadwoodStore(FileChannel channel, MappedByteBuffer[] windows, int cards, long entries) {
+        this.channel = channel;
+        this.windows = windows;
+        this.cards = cards;
+        this.entries = entries;
+    }
+
+    /**
+     * Maps a store file for reading.
+     * @param path The store file.
+     * @return the store.
+     * @throws IOException if the file cannot be mapped or is not a store.
+     */
+    static DeadwoodStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.get(0) != MAGIC_0 || header.get(1) != MAGIC_1
+                    || header.get(2) != VERSION) {
+                throw new IOException(path + " is not a deadwood store");
+            }
+            int cards = header.get(3);
+            long entries = header.getLong(4);
+            if (cards < 1 || cards > 13 || entries != SuitCanonicalizer.count(cards)
+                    || channel.size() < HEADER_SIZE + entries) {
+                throw new IOException(path + " is not a complete deadwood store");
+            }
+            return new DeadwoodStore(channel, map(channel, FileChannel.MapMode.READ_ONLY, HEADER_SIZE + entries),
+                    cards, entries);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Generates a store: the deadwood of every canonical hand, computed in parallel.
+     * Each task takes the hands of one first suit pattern, and writes its entries
+     * straight into the mapped file.
+     * @param path The file to write; it is replaced.
+     * @param cards The number of cards in a hand, 1 to 13.
+     * @param pool The pool to compute on.
+     * @return the store, open for reading.
+     * @throws IOException if the file cannot be written.
+     */
+    static DeadwoodStore build(Path path, int cards, ForkJoinPool pool) throws IOException {
+        if (cards < 1 || cards > 13) {
+            throw new IllegalArgumentException("Cannot store hands of " + cards + " cards");
+        }
+        long entries = SuitCanonicalizer.count(cards);
+        long size = HEADER_SIZE + entries;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(MAGIC_0).put(MAGIC_1).put(VERSION).put((byte) cards).putLong(entries).putInt(0).flip();
+            channel.write(header, 0);
+            // Writing the last byte sets the length, which the mapping needs.
+            channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+
+            MappedByteBuffer[] windows = map(channel, FileChannel.MapMode.READ_WRITE, size);
+            DeadwoodStore store = new DeadwoodStore(channel, windows, cards, entries);
+            pool.submit(() -> IntStream.range(0, 8192).parallel().forEach(store::fill)).join();
+            for (MappedByteBuffer window : windows) {
+                window.force();
+            }
+        }
+        return open(path);
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long size)
+            throws IOException {
+        MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((size + WINDOW - 1) >>> WINDOW_BITS)];
+        for (int i = 0; i < windows.length; i++) {
+            long start = (long) i << WINDOW_BITS;
+            windows[i] = channel.map(mode, start, Math.min(WINDOW, size - start));
+        }
+        return windows;
+    }
+
+    /**
+     * Writes the entries of the canonical hands whose first suit pattern is p0: the suits
+     * have c0 >= c1 >= c2 >= c3 cards, the right number in all, and the patterns of suits
+     * with as many cards are in decreasing order.
+     */
+    private void fill(int p0) {
+        int c0 = Integer.bitCount(p0);
+        int left0 = cards - c0;
+        if (left0 < 0) {
+            return;
+        }
+        for (int c1 = 0; c1 <= Math.min(left0, c0); c1++) {
+            for (int p1 : PATTERNS[c1]) {
+                if (c1 == c0 && p1 > p0) {
+                    break;
+                }
+                int left1 = left0 - c1;
+                for (int c2 = 0; c2 <= Math.min(left1, c1); c2++) {
+                    int c3 = left1 - c2;
+                    if (c3 > c2) {
+                        continue;
+                    }
+                    for (int p2 : PATTERNS[c2]) {
+                        if (c2 == c1 && p2 > p1) {
+                            break;
+                        }
+                        for (int p3 : PATTERNS[c3]) {
+                            if (c3 == c2 && p3 > p2) {
+                                break;
+                            }
+                            long hand = p0 | (long) p1 << 13 | (long) p2 << 26 | (long) p3 << 39;
+                            put(SuitCanonicalizer.rank(hand), MeldTable.handDeadwood(hand) + 1);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the least deadwood of a hand, as MeldTable.handDeadwood() does.
+     * @param hand The hand mask, with getCards() cards.
+     * @return the minimum deadwood.
+     */
+    int lookup(long hand) {
+        int entry = get(SuitCanonicalizer.rank(hand)) & 0xFF;
+        return entry != 0 ? entry - 1 : MeldTable.handDeadwood(hand);
+    }
+
+    private byte get(long index) {
+        long position = HEADER_SIZE + index;
+        return windows[(int) (position >>> WINDOW_BITS)].get((int) (position & (WINDOW - 1)));
+    }
+
+    private void put(long index, int value) {
+        long position = HEADER_SIZE + index;
+        windows[(int) (position >>> WINDOW_BITS)].put((int) (position & (WINDOW - 1)), (byte) value);
+    }
+
+    /**
+     * Returns the number of cards of the hands in the store.
+     * @return the hand size.
+     */
+    int getCards() {
+        return cards;
+    }
+
+    long getEntries() {
+        return entries;
+    }
+
+    /**
+     * Makes PlayerHand.calculateDeadwood() read hands of the store's size from a store.
+     * @param store The store, or null to go back to MeldTable.
+     */
+    static void install(DeadwoodStore store) {
+        installed = store;
+    }
+
+    /**
+     * Returns the store calculateDeadwood() reads from.
+     * @return the store, or null if none is installed.
+     */
+    static DeadwoodStore getInstalled() {
+        return installed;
+    }
+
+    /**
+     * Closes the file. The mapping itself is released when the store is garbage collected,
+     * so the store must not be used after this.
+     */
+    @Override
+    public void close() throws IOException {
+        if (installed == this) {
+            installed = null;
+        }
+        channel.close();
+    }
+
+    /**
+     * Builds a store, or checks one against MeldTable on random hands and times the lookups.
+     * @param args "build" or "check", the store file, and for build the number of cards (default 10),
+     *             for check the number of random hands (default 10000000).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java DeadwoodStore build <file> [cards] | check <file> [hands]");
+            return;
+        }
+        Path path = Path.of(args[1]);
+        if (args[0].equals("build")) {
+            int cards = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+            long start = System.nanoTime();
+            try (DeadwoodStore store = build(path, cards, ForkJoinPool.commonPool())) {
+                System.out.printf("%d entries in %.1f s%n", store.getEntries(), (System.nanoTime() - start) / 1e9);
+            }
+            return;
+        }
+
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 10_000_000;
+        try (DeadwoodStore store = open(path)) {
+            long[] hands = new long[count];
+            SplittableRandom random = new SplittableRandom(1);
+            for (int i = 0; i < count; i++) {
+                long hand = 0;
+                while (Long.bitCount(hand) < store.getCards()) {
+                    hand |= 1L << random.nextInt(52);
+                }
+                hands[i] = hand;
+            }
+            long mismatches = 0;
+            long start = System.nanoTime();
+            for (long hand : hands) {
+                mismatches += store.lookup(hand) != MeldTable.handDeadwood(hand) ? 1 : 0;
+            }
+            long checked = System.nanoTime() - start;
+            start = System.nanoTime();
+            long sum = 0;
+            for (long hand : hands) {
+                sum += store.lookup(hand);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d hands, %d mismatches, %.1f ns/lookup (%d, checked in %.1f s)%n",
+                    count, mismatches, seconds * 1e9 / count, sum, checked / 1e9);
+        }
+    }
+}
@@ -1,39 +1,69 @@
-import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 
 /**
  * Abstract class containing a generic deck.
+ * The cards are kept as card IDs in a fixed-capacity ring buffer, so both ends are O(1),
+ * nothing is boxed, and a deck can be reset and reused instead of allocated for every game.
+ * Every change is checked before the buffer is touched: taking a card from an empty deck
+ * throws NoSuchElementException, adding past the capacity throws IllegalStateException,
+ * and the deck is left as it was.
  */
 abstract class Deck {
-    protected ArrayList<Card> deck;
+    // A deck never holds more than the 52 cards.
+    final static int CAPACITY = 52;
+
+    protected final byte[] cards;
+    protected int head;
+    protected int size;
 
     Deck() {
-        deck = new ArrayList<>();
+        cards = new byte[CAPACITY];
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Removes every card, so the deck can be reused.
+     */
+    void reset() {
+        head = 0;
+        size = 0;
     }
 
     /**
      * Adds a card to the deck
      * @param card The card to be added.
+     * @throws IllegalStateException if the deck is full.
      */
     void addCard(Card card) {
-        deck.add(card);
+        checkRoom(1);
+        cards[slot(size)] = (byte) card.getCardID();
+        size++;
     }
 
     /**
      * Removes and returns the first (front) card in the deck.
      * @return the card that is removed.
+     * @throws NoSuchElementException if the deck is empty.
      */
     Card removeFirstCard() {
-        return deck.remove(0);
+        checkCards(1);
+        Card card = Card.of(cards[head]);
+        head = slot(1);
+        size--;
+        return card;
     }
 
     /**
      * Removes and returns the last (back) card from the deck
      * @return the card that is removed.
+     * @throws NoSuchElementException if the deck is empty.
      */
     Card removeLastCard() {
-        Card card_to_remove = deck.get(deck.size()-1);
-        deck.remove(deck.size()-1);
-        return card_to_remove;
+        checkCards(1);
+        size--;
+        return Card.of(cards[slot(size)]);
     }
 
     /**
@@ -41,8 +71,8 @@ abstract class Deck {
      * @return the last card in the deck. If the deck is empty, then return null.
      */
     Card getLastCard() {
-        if (deck.size() > 0) {
-            return deck.get(deck.size() - 1);
+        if (size > 0) {
+            return Card.of(cards[slot(size - 1)]);
         }
         else {
             return null;
@@ -54,11 +84,135 @@ abstract class Deck {
      * @return the number of cards in the deck as an integer.
      */
     int length() {
-        return deck.size();
+        return size;
+    }
+
+    /**
+     * Moves cards from the front of this deck to the back of another one, in order.
+     * The card IDs are copied as a block instead of one card at a time.
+     * @param target The deck that gets the cards.
+     * @param count The number of cards to move.
+     * @throws NoSuchElementException if this deck has fewer cards.
+     * @throws IllegalStateException if the target has no room for them.
+     */
+    void dealTo(Deck target, int count) {
+        checkCards(count);
+        target.checkRoom(count);
+        int first = Math.min(count, CAPACITY - head);
+        target.addCards(cards, head, first);
+        if (count > first) {
+            target.addCards(cards, 0, count - first);
+        }
+        head = slot(count);
+        size -= count;
+    }
+
+    /**
+     * Appends card IDs to the back of the deck.
+     * @param source The array holding the card IDs.
+     * @param offset The index of the first card ID in source.
+     * @param count The number of card IDs to append.
+     * @throws IllegalStateException if the deck has no room for them.
+     */
+    void addCards(byte[] source, int offset, int count) {
+        checkRoom(count);
+        int tail = slot(size);
+        int first = Math.min(count, CAPACITY - tail);
+        System.arraycopy(source, offset, cards, tail, first);
+        System.arraycopy(source, offset + first, cards, 0, count - first);
+        size += count;
+    }
+
+    /**
+     * Returns the card ID at a position, counted from the front.
+     * @param i The position, between 0 and length() - 1.
+     * @return the card ID.
+     */
+    protected int idAt(int i) {
+        return cards[slot(i)];
+    }
+
+    /**
+     * Removes the card at a position, counted from the front, closing the gap.
+     * @param i The position, between 0 and length() - 1.
+     * @return the card that is removed.
+     */
+    protected Card removeAt(int i) {
+        Objects.checkIndex(i, size);
+        Card card = Card.of(cards[slot(i)]);
+        for (int j = i; j < size - 1; j++) {
+            cards[slot(j)] = cards[slot(j + 1)];
+        }
+        size--;
+        return card;
+    }
+
+    /**
+     * Throws NoSuchElementException unless the deck holds at least count cards.
+     */
+    private void checkCards(int count) {
+        if (count > size) {
+            throw new NoSuchElementException("The deck has " + size + " cards, not " + count);
+        }
+    }
+
+    /**
+     * Throws IllegalStateException unless count more cards fit in the deck.
+     */
+    private void checkRoom(int count) {
+        if (size + count > CAPACITY) {
+            throw new IllegalStateException("The deck has room for " + (CAPACITY - size) + " cards, not " + count);
+        }
+    }
+
+    /**
+     * Moves the cards so that the front is at index 0 of the buffer.
+     * The whole buffer is rotated in place with three reversals.
+     */
+    protected void compact() {
+        if (head == 0) {
+            return;
+        }
+        reverse(0, head - 1);
+        reverse(head, CAPACITY - 1);
+        reverse(0, CAPACITY - 1);
+        head = 0;
+    }
+
+    private void reverse(int from, int to) {
+        for (; from < to; from++, to--) {
+            byte temp = cards[from];
+            cards[from] = cards[to];
+            cards[to] = temp;
+        }
+    }
+
+    /**
+     * Returns the buffer index of a position counted from the front.
+     */
+    protected int slot(int i) {
+        int index = head + i;
+        return index >= CAPACITY ? index - CAPACITY : index;
+    }
+
+    /**
+     * Writes the deck, such as "[4C, 7C, 2S]", into a builder.
+     * @param builder The builder to append to.
+     * @return the builder.
+     */
+    StringBuilder appendTo(StringBuilder builder) {
+        builder.append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(Card.label(idAt(i)));
+        }
+        return builder.append(']');
     }
 
     @Override
     public String toString() {
-        return deck.toString();
+        return appendTo(new StringBuilder()).toString();
     }
 }
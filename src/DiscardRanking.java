@@ -0,0 +1,81 @@
+/**
+ * The discards of a hand ranked by the deadwood left after each one.
+ * A ranking is filled in place by PlayerHand.bestDiscard() and reused, so it
+ * never allocates; it is only valid until the next call.
+ */
+class DiscardRanking {
+    private final int[] card_ids;
+    private final int[] deadwoods;
+    private int count;
+
+    /**
+     * Constructs an empty ranking with room for a full deck.
+     */
+    DiscardRanking() {
+        card_ids = new int[52];
+        deadwoods = new int[52];
+        count = 0;
+    }
+
+    /**
+     * Ranks every card of a hand as the discard.
+     * All candidates share one pass over the hand (see MeldTable.deadwoodOfDiscards()).
+     * Equal deadwood is broken by dropping the heavier card first.
+     * @param hand The hand mask.
+     */
+    void rank(long hand) {
+        count = MeldTable.deadwoodOfDiscards(hand, card_ids, deadwoods);
+
+        // Insertion sort: at most 11 entries in play.
+        for (int i = 1; i < count; i++) {
+            int card_id = card_ids[i];
+            int deadwood = deadwoods[i];
+            int j = i - 1;
+            while (j >= 0 && isBefore(deadwood, card_id, deadwoods[j], card_ids[j])) {
+                card_ids[j + 1] = card_ids[j];
+                deadwoods[j + 1] = deadwoods[j];
+                j--;
+            }
+            card_ids[j + 1] = card_id;
+            deadwoods[j + 1] = deadwood;
+        }
+    }
+
+    /**
+     * Returns the number of ranked discards (the size of the hand).
+     * @return the number of candidates.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns the card ID of a candidate. Candidate 0 is the best discard.
+     * @param i The rank, between 0 and size() - 1.
+     * @return the card ID.
+     */
+    int getCardID(int i) {
+        return card_ids[i];
+    }
+
+    /**
+     * Returns the deadwood left after discarding a candidate.
+     * @param i The rank, between 0 and size() - 1.
+     * @return the deadwood of the remaining cards.
+     */
+    int getDeadwood(int i) {
+        return deadwoods[i];
+    }
+
+    /**
+     * Tests if the first candidate ranks before the second.
+     */
+    private static boolean isBefore(int deadwood1, int card_id1, int deadwood2, int card_id2) {
+        if (deadwood1 != deadwood2) {
+            return deadwood1 < deadwood2;
+        }
+        int weight1 = MeldSolver.WEIGHT[card_id1 - 1];
+        int weight2 = MeldSolver.WEIGHT[card_id2 - 1];
+        return weight1 > weight2 || (weight1 == weight2 && card_id1 > card_id2);
+    }
+}
@@ -1,115 +1,342 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Scanner;
-
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One game of a player against the CPU.
+ * The game does not read any input itself: every answer of the player is passed to handle(),
+ * which plays it (and the CPU's move after it) and leaves the screens to show in getScreen().
+ * This way main() can play one game on the console, and GameServer can host many games at once.
+ * The rules are TurnMachine's: the game only keeps the current TableState, and turns answers
+ * into TurnActions and states into screens.
+ */
 public class Game {
-    private ClosedDeck closed_deck;
-    private OpenDeck open_deck;
+    private final long seed;
+    private final TurnMachine machine;
+    private TableState state;
     private PlayerHand player_hand;
     private PlayerHand computer_hand;
     private String player_name;
     private String computer_name;
+    private Strategy computer_strategy;
+    private final StringBuilder screen;
+    private GameRecordWriter record_writer;
+    private GameRecordWriter.Recording recording;
+    private PhaseLatency latency;
+
+    /**
+     * Initialized the player and the CPU.
+     * The CPU plays with the GreedyStrategy.
+     */
+    Game() {
+        this(new GreedyStrategy(), ThreadLocalRandom.current().nextLong());
+    }
 
     /**
-     * Initialized the closed deck, open deck, player1 and computer_hand.
+     * Initialized the player and the CPU.
+     * @param computer_strategy The strategy the CPU plays with.
+     * @param seed The seed of the closed deck.
      */
-    private Game() {
-        closed_deck = new ClosedDeck();
-        open_deck = new OpenDeck();
+    Game(Strategy computer_strategy, long seed) {
+        this.seed = seed;
+        machine = new TurnMachine();
+        state = null;
         player_hand = new PlayerHand();
         computer_hand = new PlayerHand();
         player_name = "Player";
         computer_name = "CPU";
+        this.computer_strategy = computer_strategy;
+        screen = new StringBuilder(512);
+        record_writer = null;
+        recording = null;
+        latency = null;
+    }
+
+    /**
+     * Starts the game: shows the intro, deals, and waits for the player's first draw.
+     */
+    void start() {
+        TableState dealt = TurnMachine.deal(seed);
+        if (record_writer != null) {
+            recording = record_writer.begin(seed);
+        }
+        start(dealt);
+    }
+
+    /**
+     * Starts the game from a saved state, such as one from getState().
+     * If the CPU is to move, it moves before the first screen.
+     * @param saved The state to go on from.
+     */
+    void start(TableState saved) {
+        state = saved;
+        computer_strategy.newHand();
+        screen.setLength(0);
+        displayIntro();
+        playCPUTurn();
+        displayPhase();
+        appendPrompt();
+    }
+
+    /**
+     * Plays one answer of the player. Answers that are not an option of the current screen are ignored.
+     * The screens shown in response, ending with the prompt unless the game is over, are left in getScreen().
+     * @param input The first character the player typed.
+     */
+    void handle(char input) {
+        long start = latency == null ? 0 : System.nanoTime();
+        screen.setLength(0);
+        TurnAction action = isOver() ? null : actionOf(input);
+        if (action == null) {
+            appendPrompt();
+            return;
+        }
+        screen.append('\n');
+
+        if (latency != null && (action.getKind() == TurnAction.DRAW_OPEN || action.getKind() == TurnAction.DRAW_CLOSED)) {
+            long draw_start = System.nanoTime();
+            play(action);
+            latency.record(PhaseLatency.DRAW, System.nanoTime() - draw_start);
+        }
+        else {
+            play(action);
+        }
+        playCPUTurn();
+        displayPhase();
+        appendPrompt();
+
+        if (latency != null) {
+            latency.record(PhaseLatency.ANSWER, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Tests if the game is over, because someone knocked, the closed deck ran out, or the player quit.
+     * @return true if the game is over.
+     */
+    boolean isOver() {
+        return state == null || state.getPhase() == TurnPhase.GAME_OVER;
+    }
+
+    /**
+     * Returns the state of the game, which can be saved with TableState.toBytes().
+     * Between two answers, the state is always waiting for the player (or over).
+     * @return the state, or null before start().
+     */
+    TableState getState() {
+        return state;
+    }
+
+    /**
+     * Returns the screens shown by the last call to start() or handle().
+     * The text is overwritten by the next call.
+     * @return the screens.
+     */
+    CharSequence getScreen() {
+        return screen;
+    }
+
+    /**
+     * Records the game into an archive, from the next start() on.
+     * The writer is not closed by the game.
+     * @param record_writer The archive writer, or null for none.
+     */
+    void setRecorder(GameRecordWriter record_writer) {
+        this.record_writer = record_writer;
+    }
+
+    /**
+     * Times the phases of every answer from now on: the player's draw, laying out the hands,
+     * their deadwood, the CPU's move, and the whole answer.
+     * @param latency The histograms to fill, or null to stop timing.
+     */
+    void setLatency(PhaseLatency latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Turns an answer into a move: on the draw screen (1) open deck, (2) closed deck or (q) quit;
+     * on the knock screen (1) knock, dropping the best card unless all 11 cards are melded (big gin);
+     * on the drop screen (1) drop or (q) quit.
+     * The card dropped is the player's last card, or the one before it if the last card
+     * was just drawn from the open deck.
+     * @return the move, or null if the answer is not an option.
+     */
+    private TurnAction actionOf(char input) {
+        switch (state.getPhase()) {
+            case DRAW:
+                if (input == '1') {
+                    return TurnAction.drawOpen();
+                }
+                if (input == '2') {
+                    return TurnAction.drawClosed();
+                }
+                break;
+            case KNOCK_DECISION:
+                if (input == '1') {
+                    if (TurnMachine.isBigGin(state.getPlayerHand())) {
+                        return TurnAction.knock(0);
+                    }
+                    return TurnAction.knock(machine.bestDrop(state.getPlayerHand(), state.getDrawnOpenCardID()));
+                }
+                return null;
+            case DISCARD:
+                if (input == '1') {
+                    return TurnAction.discard(dropCardID());
+                }
+                break;
+            default:
+                return null;
+        }
+        return input == 'q' ? TurnAction.quit() : null;
     }
 
     /**
-     * Does the pre-game preparation: Deal 10 cards to each player, and one card to the open deck.
+     * Returns the card "drop your last card" drops.
      */
-    private void initGame () {
-        // Distribute cards...
-        for (int i = 0; i < 10; i++) {
-            // ... to player 1
-            Card card = closed_deck.removeFirstCard();
-            player_hand.addCard(card);
-
-            // ... to player 2
-            card = closed_deck.removeFirstCard();
-            computer_hand.addCard(card);
+    private int dropCardID() {
+        PlayerHand hand = layout(player_hand, state.getPlayerHand());
+        int card_id = hand.getLastCard().getCardID();
+        if (card_id == state.getDrawnOpenCardID()) {
+            card_id = hand.idAt(hand.length() - 2);
         }
+        return card_id;
+    }
 
-        player_hand.meld();
-        computer_hand.meld();
+    /**
+     * Plays the CPU's move if it is the CPU's turn.
+     */
+    private void playCPUTurn() {
+        if (state.getPhase() == TurnPhase.CPU_TURN) {
+            displayCPUScreen();
+            long start = latency == null ? 0 : System.nanoTime();
+            play(machine.decideCPU(state, computer_strategy));
+            if (latency != null) {
+                latency.record(PhaseLatency.CPU_DECISION, System.nanoTime() - start);
+            }
+        }
+    }
 
-        // Add a card to open deck.
-        Card card = closed_deck.removeFirstCard();
-        open_deck.addCard(card);
+    /**
+     * Plays a move and records it if the game is being recorded.
+     */
+    private void play(TurnAction action) {
+        state = machine.apply(state, action);
+        if (recording != null) {
+            record(action);
+        }
+    }
+
+    /**
+     * Shows the screen of the phase the game waits for, or how it ended.
+     */
+    private void displayPhase() {
+        switch (state.getPhase()) {
+            case DRAW:
+                displayDrawScreen();
+                break;
+            case KNOCK_DECISION:
+                displayKnockScreen();
+                break;
+            case DISCARD:
+                displayDropScreen();
+                break;
+            default:
+                if (state.getEnding() == GameRecord.DRAW_GAME) {
+                    screen.append("Its a draw\n");
+                }
+                else if (state.getEnding() == GameRecord.KNOCK) {
+                    displayAfterKnockScreen(state.getKnocker());
+                }
+        }
     }
 
     /**
      * Displays the intro screen.
      */
     private void displayIntro () {
-        System.out.println("------------------------------");
-        System.out.println("Simple Gin Rummy!");
-        System.out.println("by Krish Kalai");
-        System.out.println("------------------------------\n");
+        screen.append("------------------------------\n");
+        screen.append("Simple Gin Rummy!\n");
+        screen.append("by Krish Kalai\n");
+        screen.append("------------------------------\n\n");
     }
 
     /**
      * Displays the draw screen.
      */
     private void displayDrawScreen () {
-        System.out.println("Closed Deck: " + "[X]" + "\t\tOpen Deck: " + open_deck);
-        System.out.println("Deadwood: " + player_hand.calculateDeadwood());
-        System.out.println(player_name + " Hand: " + player_hand + "\n");
-
-        System.out.println("Your options are:");
-        System.out.println("(1) to draw from the open deck");
-        System.out.println("(2) to draw from the closed deck");
-        System.out.println();
-        System.out.println("(q) to quit");
+        appendTable();
+
+        screen.append("Your options are:\n");
+        screen.append("(1) to draw from the open deck\n");
+        screen.append("(2) to draw from the closed deck\n");
+        screen.append('\n');
+        screen.append("(q) to quit\n");
     }
 
     /**
      * Displays the drop screen.
      */
     private void displayDropScreen () {
-        System.out.println("Closed Deck: " + "[X]" + "\t\tOpen Deck: " + open_deck);
-        System.out.println("Deadwood: " + player_hand.calculateDeadwood());
-        System.out.println(player_name + " Hand: " + player_hand + "\n");
-
-        System.out.println("Your options are:");
-        System.out.println("(1) to drop your last card");
-        System.out.println();
-        System.out.println("(q) to quit");
+        appendTable();
+
+        screen.append("Your options are:\n");
+        screen.append("(1) to drop your last card\n");
+        screen.append('\n');
+        screen.append("(q) to quit\n");
     }
 
     /**
      * Displays the knock screen.
      */
     private void displayKnockScreen () {
-        System.out.println("Closed Deck: " + "[X]" + "\t\tOpen Deck: " + open_deck);
-        System.out.println("Deadwood: " + player_hand.calculateDeadwood());
-        System.out.println(player_name + " Hand: " + player_hand + "\n");
+        appendTable();
 
-        System.out.println("(1) to Knock");
+        screen.append("(1) to Knock\n");
     }
 
     /**
-     * Displays the winning screen.
-     * @param is_player_win A boolean: true if the player won the game; false if the CPU won.
+     * Displays the winning screen: both hands, the defender's layoffs, and the score of the knock.
+     * @param knocker 0 if the player knocked, 1 if the CPU did.
      */
-    private void displayAfterKnockScreen (boolean is_player_win) {
-        System.out.println("Closed Deck: " + "[X]" + "\t\tOpen Deck: " + open_deck);
-        System.out.println("Deadwood: " + player_hand.calculateDeadwood());
-        System.out.println(player_name + " Hand: " + player_hand + "\n");
-
-        System.out.println("Deadwood: " + computer_hand.calculateDeadwood());
-        System.out.println(computer_name + " Hand: " + computer_hand + "\n");
+    private void displayAfterKnockScreen (int knocker) {
+        appendTable();
+        appendHand(computer_name, layout(computer_hand, state.getComputerHand()));
+
+        PlayerHand[] hands = {player_hand, computer_hand};
+        String[] names = {player_name, computer_name};
+        KnockResult knock = new KnockResolver().resolve(knocker, hands[knocker], hands[1 - knocker]);
+
+        screen.append(names[knocker]).append(" knocked");
+        switch (knock.getType()) {
+            case KnockResult.GIN:
+                screen.append(" with gin");
+                break;
+            case KnockResult.BIG_GIN:
+                screen.append(" with big gin");
+                break;
+            case KnockResult.UNDERCUT:
+                screen.append(" and was undercut");
+                break;
+            default:
+                break;
+        }
+        screen.append(".\n");
+        if (knock.getLayoffs() != 0) {
+            screen.append(names[1 - knocker]).append(" laid off:");
+            for (long cards = knock.getLayoffs(); cards != 0; cards &= cards - 1) {
+                screen.append(' ').append(Card.label(Long.numberOfTrailingZeros(cards) + 1));
+            }
+            screen.append('\n');
+        }
+        screen.append(names[knock.getWinner()]).append(" scores ").append(knock.getPoints()).append(" points.\n");
 
-        if (is_player_win) {
-            System.out.println("Congratulations, you won the game.");
+        if (knock.getWinner() == 0) {
+            screen.append("Congratulations, you won the game.\n");
         }
         else {
-            System.out.println("Sorry, you lost the game.");
+            screen.append("Sorry, you lost the game.\n");
         }
     }
 
@@ -117,190 +344,163 @@ public class Game {
      * Displays the CPU moving screen.
      */
     private void displayCPUScreen () {
-        System.out.println("CPU Player moved...");
-        System.out.println();
+        screen.append("CPU Player moved...\n\n");
     }
 
     /**
-     * Returns the first character of an user input without validating.
-     * @return the first character of the input.
-     *         If the user types "100101", then the function will return '1'.
+     * Appends the decks and the player's hand, the top of every screen.
      */
-    private char getInput() {
-        Scanner cin = new Scanner(System.in);
-        String buffer;
-
-        buffer = cin.next();
-        cin.nextLine();
-
-        return buffer.charAt(0);
+    private void appendTable () {
+        screen.append("Closed Deck: [X]\t\tOpen Deck: [");
+        if (state.getOpenSize() > 0) {
+            screen.append(Card.label(state.getOpenTopID()));
+        }
+        screen.append("]\n");
+        appendHand(player_name, layout(player_hand, state.getPlayerHand()));
     }
 
     /**
-     * This function contains the logic for the CPU move. The CPU does:
-     * 1) pseudo-draw a card from the open deck, meld, and record the deadwood.
-     * 2) pseudo-draw a card from the closed deck, meld, and record the deadwood.
-     * 3) Compare the deadwood, and draw from the deck which yields the least deadwood.
-     * 4) Check for knock. If possible, then knock immediately.
-     * 5) Drop a card to the open deck, and the turn is over.
+     * Appends a hand and its deadwood to the screen. The deadwood is computed once per screen.
+     * @param name The name of the hand's owner.
+     * @param hand The hand.
      */
-    private boolean performCPUPlayerMove() {
-        Card card;
-        int open_deadwood, closed_deadwood;
-        boolean avoid_open_deck = false;
-
-        card = open_deck.getLastCard();
-        computer_hand.addCard(card);
-        computer_hand.meld();
-        open_deadwood = computer_hand.calculateDeadwood();
-        if (card.getCardID() == computer_hand.getLastCard().getCardID()) {
-            avoid_open_deck = true;
+    private void appendHand (String name, PlayerHand hand) {
+        long start = latency == null ? 0 : System.nanoTime();
+        int deadwood = hand.calculateDeadwood();
+        if (latency != null) {
+            latency.record(PhaseLatency.DEADWOOD, System.nanoTime() - start);
         }
-        computer_hand.removeCardFromHand(card);
+        screen.append("Deadwood: ").append(deadwood).append('\n');
+        screen.append(name).append(" Hand: ");
+        hand.appendTo(screen).append("\n\n");
+    }
 
-        if (avoid_open_deck) {
-            card = closed_deck.removeLastCard();
-        }
-        else {
-            if (closed_deck.length() <= 1) {
-                System.out.println("Its a draw");
-                System.exit(0);
-            }
-            card = closed_deck.getLastCard();
-            computer_hand.addCard(card);
-            computer_hand.meld();
-            closed_deadwood = computer_hand.calculateDeadwood();
-            computer_hand.removeCardFromHand(card);
-
-            if (open_deadwood <= closed_deadwood) {
-                card = open_deck.removeLastCard();
-            } else {
-                card = closed_deck.removeLastCard();
+    /**
+     * Lays out a hand for the screen, with its melds first and its best drop last.
+     * The hand is only laid out again when its cards changed.
+     * @param hand The hand to reuse.
+     * @param mask The cards it should hold.
+     * @return the hand.
+     */
+    private PlayerHand layout (PlayerHand hand, long mask) {
+        if (hand.getMask() != mask) {
+            hand.reset();
+            for (long cards = mask; cards != 0; cards &= cards - 1) {
+                hand.addCard(Card.of(Long.numberOfTrailingZeros(cards) + 1));
             }
         }
-        computer_hand.addCard(card);
-        computer_hand.meld();
+        long start = latency == null ? 0 : System.nanoTime();
+        hand.meld();
+        if (latency != null) {
+            latency.record(PhaseLatency.MELD, System.nanoTime() - start);
+        }
+        return hand;
+    }
 
-        card = computer_hand.removeLastCard();
-        open_deck.addCard(card);
+    /**
+     * Appends the input prompt, unless the game is over.
+     */
+    private void appendPrompt () {
+        if (!isOver()) {
+            screen.append(">>> ");
+        }
+    }
 
-        if (computer_hand.calculateDeadwood() <= 10) {
-            displayAfterKnockScreen(false);
-            return true;
+    /**
+     * Records a move that was just played.
+     * @param action The move.
+     */
+    private void record (TurnAction action) {
+        boolean draw_game = state.getEnding() == GameRecord.DRAW_GAME;
+
+        switch (action.getKind()) {
+            case TurnAction.DRAW_OPEN:
+                recording.drawOpen();
+                break;
+            case TurnAction.DRAW_CLOSED:
+                if (draw_game) {
+                    recording.drawGame();
+                }
+                else {
+                    recording.drawClosed();
+                }
+                break;
+            case TurnAction.DISCARD:
+                recording.discard(Card.of(action.getCardID()));
+                break;
+            case TurnAction.KNOCK:
+                if (action.getCardID() != 0) {
+                    recording.discard(Card.of(action.getCardID()));
+                }
+                recording.knock();
+                break;
+            case TurnAction.QUIT:
+                recording.quit();
+                break;
+            default:
+                if (draw_game) {
+                    recording.drawGame();
+                    break;
+                }
+                if (action.isFromOpenDeck()) {
+                    recording.drawOpen();
+                }
+                else {
+                    recording.drawClosed();
+                }
+                if (action.getCardID() != 0) {
+                    recording.discard(Card.of(action.getCardID()));
+                }
+                if (action.isKnock()) {
+                    recording.knock();
+                }
+        }
+        if (isOver()) {
+            recording = null;
         }
-        return false;
     }
 
     /**
-     * Main driver for game
-     * @param args Unused default string array.
+     * Main driver for game: plays one game on the console.
+     * Only the first character of each answer counts, so "100101" is read as '1'.
+     * @param args Optionally, an archive file to record the game to (see GameRecord).
      */
     public static void main(String[] args) {
         Game game = new Game();
-        Card card = null, open_card;
-        char input;
-
-        // Start the game
-        game.displayIntro();
-
-        // Populate player1's hand, computer_hand's hand and the open deck.
-        game.initGame();
-
-        while (true) {
-            game.displayDrawScreen();
-
-            open_card = null;
+        GameRecordWriter record_writer = null;
+        Scanner cin = new Scanner(System.in);
 
-            // Input validation for draw screen
-            do {
-                System.out.printf(">>> ");
-                input = game.getInput();
-                if (input == '1' || input == '2' || input == 'q') {
-                    break;
-                }
-            } while (true);
-
-            System.out.println("");
-            // Perform the requested operation
-            switch (input) {
-                case '1':
-                    // Draw from the open deck
-                    card = game.open_deck.removeLastCard();
-                    open_card = card;
-                    break;
-                case '2':
-                    // Draw from the closed deck
-                    if (game.closed_deck.length() <= 1) {
-                        System.out.println("Its a draw");
-                        System.exit(0);
-                    }
-                    card = game.closed_deck.removeLastCard();
-                    break;
-                case 'q':
-                    // Quit the game
-                    System.exit(0);
+        if (args.length > 0) {
+            try {
+                record_writer = GameRecordWriter.open(Path.of(args[0]), args[0].endsWith(".gz"));
+                game.setRecorder(record_writer);
             }
-            game.player_hand.addCard(card);
-            game.player_hand.meld();
-
-            if (game.player_hand.calculateDeadwood() <= 10) {
-                game.displayKnockScreen();
-
-                // Input validation for knock screen
-                do {
-                    System.out.printf(">>> ");
-                    input = game.getInput();
-                    if (input == '1') {
-                        System.out.println();
-                        break;
-                    }
-                } while (true);
-
-                // Perform the requested operation
-                switch (input) {
-                    case '1':
-                        // Drop the player's last card and knock
-                        game.player_hand.removeLastCard();
-                        game.displayAfterKnockScreen(true);
-                        System.exit(0);
-                }
+            catch (IOException e) {
+                System.err.println("Could not open " + args[0] + ": " + e.getMessage());
             }
+        }
 
-            game.displayDropScreen();
+        game.start();
+        System.out.print(game.getScreen());
+        System.out.flush();
 
-            // Input validation for drop screen
-            do {
-                System.out.printf(">>> ");
-                input = game.getInput();
-                if (input == '1' || input == 'q') {
-                    System.out.println();
-                    break;
-                }
-            } while (true);
-
-            // Perform the requested operation
-            switch (input) {
-                case '1':
-                    // If the last card == open card, remove second to last card
-                    if (open_card != null && open_card.getCardID() == game.player_hand.getLastCard().getCardID()) {
-                        card = game.player_hand.removeSecondToLastCard();
-                    }
-                    else {
-                        // Drop the player's last card
-                        card = game.player_hand.removeLastCard();
-                    }
-
-                    game.open_deck.addCard(card);
-                    break;
-                case 'q':
-                    // Quit the game
-                    System.exit(0);
+        while (!game.isOver() && cin.hasNext()) {
+            String buffer = cin.next();
+            if (cin.hasNextLine()) {
+                cin.nextLine();
             }
 
-            game.displayCPUScreen();
-            // CPU player turn
-            if (game.performCPUPlayerMove()) {
-                return;
+            game.handle(buffer.charAt(0));
+            System.out.print(game.getScreen());
+            System.out.flush();
+        }
+
+        if (record_writer != null) {
+            try {
+                record_writer.close();
+            }
+            catch (IOException e) {
+                System.err.println("Could not write the game record: " + e.getMessage());
             }
         }
     }
@@ -0,0 +1,170 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Plays a complete game between two strategies without any console input or output.
+ * It follows the same rules as Game, checked by TurnMachine's rule methods: player 0 moves
+ * first, a player may knock with 10 or less deadwood, and the game is a draw when the closed
+ * deck runs out. A player who draws a card that melds all 11 cards always knocks at once for
+ * big gin, and a drop the rules do not allow is replaced by the best legal one.
+ * The decks and hands are changed in place rather than through TableStates, for throughput.
+ * Knocks are scored by KnockResolver.
+ */
+class GameEngine {
+    // A game cannot go on for more turns than this; it is counted as a draw.
+    final static int MAX_TURNS = 1000;
+
+    private final ClosedDeck closed_deck;
+    private final OpenDeck open_deck;
+    private final PlayerHand[] hands;
+    private final Strategy[] strategies;
+    private final long[] picked;
+    private final TurnMachine machine;
+    private final KnockResolver resolver;
+    private GameRecordWriter recorder;
+
+    /**
+     * Initializes a game with a freshly shuffled deck.
+     * @param strategy0 The strategy of player 0, who moves first.
+     * @param strategy1 The strategy of player 1.
+     */
+    GameEngine(Strategy strategy0, Strategy strategy1) {
+        this(strategy0, strategy1, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Initializes a game with a deck shuffled from a seed.
+     * The same seed and strategies always play the same game.
+     * @param strategy0 The strategy of player 0, who moves first.
+     * @param strategy1 The strategy of player 1.
+     * @param seed The seed of the closed deck.
+     */
+    GameEngine(Strategy strategy0, Strategy strategy1, long seed) {
+        closed_deck = new ClosedDeck(seed);
+        open_deck = new OpenDeck();
+        hands = new PlayerHand[] {new PlayerHand(), new PlayerHand()};
+        strategies = new Strategy[] {strategy0, strategy1};
+        picked = new long[2];
+        machine = new TurnMachine();
+        resolver = new KnockResolver();
+        recorder = null;
+    }
+
+    /**
+     * Records every game played from now on into an archive.
+     * @param recorder The archive writer, or null to stop recording.
+     */
+    void setRecorder(GameRecordWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Puts the decks and hands back to a new, undealt game shuffled from a seed,
+     * so the engine can play again without allocating new decks.
+     * @param seed The seed of the closed deck.
+     */
+    void reset(long seed) {
+        closed_deck.reset(seed);
+        open_deck.reset();
+        hands[0].reset();
+        hands[1].reset();
+        picked[0] = 0;
+        picked[1] = 0;
+    }
+
+    /**
+     * Deals and plays the game to the end.
+     * @return the result of the game.
+     */
+    GameResult play() {
+        strategies[0].newHand();
+        strategies[1].newHand();
+        closed_deck.deal(hands[0], hands[1], open_deck);
+        GameRecordWriter.Recording recording = recorder == null ? null : recorder.begin(closed_deck.getSeed());
+
+        int player = 0;
+        for (int turn = 1; turn <= MAX_TURNS; turn++) {
+            PlayerHand hand = hands[player];
+            Strategy strategy = strategies[player];
+            Card drawn_open_card = null;
+            Card card;
+
+            if (open_deck.length() > 0 && strategy.drawFromOpenDeck(snapshot(player, null))) {
+                card = open_deck.removeLastCard();
+                drawn_open_card = card;
+                picked[player] |= HandMask.bit(card);
+                if (recording != null) {
+                    recording.drawOpen();
+                }
+            }
+            else {
+                if (TurnMachine.isStockExhausted(closed_deck.length())) {
+                    if (recording != null) {
+                        recording.drawGame();
+                    }
+                    return result(GameResult.NO_WINNER, turn - 1, true);
+                }
+                card = closed_deck.removeLastCard();
+                if (recording != null) {
+                    recording.drawClosed();
+                }
+            }
+            hand.addCard(card);
+
+            if (TurnMachine.isBigGin(hand.getMask())) {
+                if (recording != null) {
+                    recording.knock();
+                }
+                return knock(player, turn);
+            }
+
+            int drawn_open_card_id = drawn_open_card == null ? 0 : drawn_open_card.getCardID();
+            int card_id = strategy.chooseDiscard(snapshot(player, drawn_open_card));
+            if (!TurnMachine.isLegalDiscard(hand.getMask(), card_id, drawn_open_card_id)) {
+                card_id = machine.bestDrop(hand.getMask(), drawn_open_card_id);
+            }
+            card = hand.getCard(card_id);
+            hand.removeCardFromHand(card);
+            picked[player] &= ~HandMask.bit(card);
+            open_deck.addCard(card);
+            if (recording != null) {
+                recording.discard(card);
+            }
+
+            if (TurnMachine.canKnock(hand.calculateDeadwood()) && strategy.knock(snapshot(player, null))) {
+                if (recording != null) {
+                    recording.knock();
+                }
+                return knock(player, turn);
+            }
+            player = 1 - player;
+        }
+        if (recording != null) {
+            recording.drawGame();
+        }
+        return result(GameResult.NO_WINNER, MAX_TURNS, false);
+    }
+
+    /**
+     * Takes a snapshot of the game as one player sees it.
+     * @param player 0 or 1.
+     * @param drawn_open_card The card the player drew from the open deck this turn, or null.
+     * @return the snapshot.
+     */
+    private GameState snapshot(int player, Card drawn_open_card) {
+        Card open_card = open_deck.getLastCard();
+        return new GameState(hands[player].getMask(), open_deck.getMask(), picked[1 - player],
+                open_card == null ? 0 : open_card.getCardID(),
+                drawn_open_card == null ? 0 : drawn_open_card.getCardID(),
+                closed_deck.length());
+    }
+
+    private GameResult knock(int knocker, int turns) {
+        KnockResult knock = resolver.resolve(knocker, hands[knocker], hands[1 - knocker]);
+        return new GameResult(knock, hands[0].calculateDeadwood(), hands[1].calculateDeadwood(), turns);
+    }
+
+    private GameResult result(int winner, int turns, boolean stock_exhausted) {
+        return new GameResult(winner, hands[0].calculateDeadwood(), hands[1].calculateDeadwood(),
+                turns, stock_exhausted);
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * The binary game-record format.
+ *
+ * A record is a 14-byte header followed by one byte per event:
+ *   bytes 0-1   magic "GR"
+ *   byte  2     format version (1)
+ *   byte  3     flags (unused, 0)
+ *   bytes 4-11  seed of the closed deck (big-endian), see ClosedDeck(long)
+ *   bytes 12-13 number of events (big-endian, unsigned)
+ * An archive is records back to back, optionally gzip-compressed as a whole.
+ *
+ * Players take turns starting with the first player to move, and a turn is a draw event
+ * followed by a discard event, so the player of an event is not stored. The game ends
+ * with a KNOCK, DRAW_GAME or QUIT event (an unfinished game has none). A KNOCK comes
+ * after the knocker's discard, or right after its draw for big gin (all 11 cards melded).
+ */
+final class GameRecord {
+    final static byte MAGIC_0 = 'G';
+    final static byte MAGIC_1 = 'R';
+    final static byte VERSION = 1;
+    final static int HEADER_SIZE = 14;
+
+    // Longest game: one event per draw and discard, plus the ending event.
+    final static int MAX_EVENTS = 65535;
+
+    // Events 1 to 52 are discards of that card ID.
+    final static byte DRAW_OPEN = 0x40;
+    final static byte DRAW_CLOSED = 0x41;
+    final static byte KNOCK = (byte) 0x80;
+    final static byte DRAW_GAME = (byte) 0x81;
+    final static byte QUIT = (byte) 0x82;
+
+    private GameRecord() {
+    }
+
+    /**
+     * Tests if an event is a discard.
+     * @param event The event byte.
+     * @return true if the event is the discard of card ID event.
+     */
+    static boolean isDiscard(byte event) {
+        return event >= 1 && event <= 52;
+    }
+
+    /**
+     * Tests if an event ends the game.
+     * @param event The event byte.
+     * @return true for KNOCK, DRAW_GAME and QUIT.
+     */
+    static boolean isEnd(byte event) {
+        return event == KNOCK || event == DRAW_GAME || event == QUIT;
+    }
+
+    /**
+     * Returns a readable name for an event, such as "discard 10H".
+     * @param event The event byte.
+     * @return the name.
+     */
+    static String describe(byte event) {
+        if (isDiscard(event)) {
+            return "discard " + Card.label(event);
+        }
+        switch (event) {
+            case DRAW_OPEN:
+                return "draw open";
+            case DRAW_CLOSED:
+                return "draw closed";
+            case KNOCK:
+                return "knock";
+            case DRAW_GAME:
+                return "draw game";
+            case QUIT:
+                return "quit";
+            default:
+                return "unknown " + event;
+        }
+    }
+}
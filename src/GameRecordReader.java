@@ -0,0 +1,200 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Scans an archive of GameRecord records.
+ * An uncompressed archive is memory-mapped in windows of up to 1 GB, so archives of any
+ * size can be scanned and the events are read straight from the page cache.
+ * A stream, such as a gzip-compressed archive, is decoded one record at a time into a
+ * buffer that holds the largest record, so it is never held in memory as a whole.
+ *
+ * Usage: while (reader.next()) { reader.getSeed(); reader.getEvent(i); ... }
+ */
+class GameRecordReader implements Closeable {
+    private final static long WINDOW = 1L << 30;
+
+    private final FileChannel channel;
+    private final InputStream in;
+    private final long file_size;
+    private ByteBuffer buffer;
+    // The offset in the archive of the start of the buffer.
+    private long window_start;
+
+    // The current record: its offset in the buffer, and the offset of the next one.
+    private int record;
+    private int next_record;
+    private long seed;
+    private int events;
+    private long records;
+
+    private GameRecordReader(FileChannel channel, InputStream in, long file_size, ByteBuffer buffer) {
+        this.channel = channel;
+        this.in = in;
+        this.file_size = file_size;
+        this.buffer = buffer;
+        window_start = 0;
+        record = 0;
+        next_record = 0;
+        records = 0;
+    }
+
+    /**
+     * Memory-maps an uncompressed archive.
+     * @param path The archive file.
+     * @return the reader, before the first record.
+     * @throws IOException if the file cannot be mapped.
+     */
+    static GameRecordReader map(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, WINDOW));
+        return new GameRecordReader(channel, null, size, buffer);
+    }
+
+    /**
+     * Reads an archive from a stream, such as a gzip-compressed one, one record at a time.
+     * @param in The stream; it is read as far as next() goes, and closed with the reader.
+     * @param compressed true if the stream is gzip-compressed.
+     * @return the reader, before the first record.
+     * @throws IOException if the stream cannot be read.
+     */
+    static GameRecordReader read(InputStream in, boolean compressed) throws IOException {
+        InputStream stream = new BufferedInputStream(compressed ? new GZIPInputStream(in, 1 << 16) : in, 1 << 16);
+        ByteBuffer buffer = ByteBuffer.allocate(GameRecord.HEADER_SIZE + GameRecord.MAX_EVENTS);
+        return new GameRecordReader(null, stream, Long.MAX_VALUE, buffer);
+    }
+
+    /**
+     * Moves to the next record.
+     * @return true if there is one, false at the end of the archive.
+     * @throws IOException if the record is not in the GameRecord format.
+     */
+    boolean next() throws IOException {
+        if (in != null) {
+            return nextFromStream();
+        }
+        record = next_record;
+        if (window_start + record >= file_size) {
+            return false;
+        }
+        if (record + GameRecord.HEADER_SIZE > buffer.limit()) {
+            remap();
+        }
+        readHeader(record + GameRecord.HEADER_SIZE <= buffer.limit());
+        next_record = record + GameRecord.HEADER_SIZE + events;
+        if (next_record > buffer.limit()) {
+            remap();
+            next_record = record + GameRecord.HEADER_SIZE + events;
+            if (next_record > buffer.limit()) {
+                throw new IOException("Truncated game record at offset " + (window_start + record));
+            }
+        }
+        records++;
+        return true;
+    }
+
+    /**
+     * Reads the next record of a stream into the start of the buffer.
+     */
+    private boolean nextFromStream() throws IOException {
+        window_start += next_record;
+        record = 0;
+        byte[] bytes = buffer.array();
+        int read = in.readNBytes(bytes, 0, GameRecord.HEADER_SIZE);
+        if (read == 0) {
+            return false;
+        }
+        readHeader(read == GameRecord.HEADER_SIZE);
+        if (in.readNBytes(bytes, GameRecord.HEADER_SIZE, events) < events) {
+            throw new IOException("Truncated game record at offset " + window_start);
+        }
+        next_record = GameRecord.HEADER_SIZE + events;
+        records++;
+        return true;
+    }
+
+    /**
+     * Checks the header of the current record and reads its seed and event count.
+     * @param whole false if the archive ends inside the header.
+     */
+    private void readHeader(boolean whole) throws IOException {
+        if (!whole || buffer.get(record) != GameRecord.MAGIC_0 || buffer.get(record + 1) != GameRecord.MAGIC_1) {
+            throw new IOException("Not a game record at offset " + (window_start + record));
+        }
+        if (buffer.get(record + 2) != GameRecord.VERSION) {
+            throw new IOException("Unknown game record version " + buffer.get(record + 2));
+        }
+        seed = buffer.getLong(record + 4);
+        events = buffer.getShort(record + 12) & 0xFFFF;
+    }
+
+    /**
+     * Maps a new window starting at the current record.
+     */
+    private void remap() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        window_start += record;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, window_start, Math.min(file_size - window_start, WINDOW));
+        record = 0;
+    }
+
+    /**
+     * Returns the seed of the current record.
+     * @return the seed of the closed deck.
+     */
+    long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of events in the current record.
+     * @return the event count.
+     */
+    int getEventCount() {
+        return events;
+    }
+
+    /**
+     * Returns an event of the current record.
+     * @param i The event number, between 0 and getEventCount() - 1.
+     * @return the event byte (see GameRecord).
+     */
+    byte getEvent(int i) {
+        return buffer.get(record + GameRecord.HEADER_SIZE + i);
+    }
+
+    /**
+     * Copies the events of the current record.
+     * @param destination An array of at least getEventCount() bytes.
+     */
+    void copyEvents(byte[] destination) {
+        buffer.get(record + GameRecord.HEADER_SIZE, destination, 0, events);
+    }
+
+    /**
+     * Returns the number of records read so far.
+     * @return the record count.
+     */
+    long getRecords() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        if (in != null) {
+            in.close();
+        }
+    }
+}
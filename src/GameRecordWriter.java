@@ -0,0 +1,161 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams games into an archive in the GameRecord format.
+ * The events of the current game are kept in a small buffer and the whole record is written
+ * with one call when the game ends, so games from several threads can share a writer.
+ * A writer records one game at a time per Recording (see begin()).
+ */
+class GameRecordWriter implements Closeable {
+    private final OutputStream out;
+    private long games;
+
+    /**
+     * Initializes a writer on a stream.
+     * @param out The stream to write records to.
+     */
+    GameRecordWriter(OutputStream out) {
+        this.out = out;
+        games = 0;
+    }
+
+    /**
+     * Opens an archive file for appending.
+     * @param path The archive file.
+     * @param compress true to gzip the records written by this writer.
+     *                 A compressed archive is read with GameRecordReader.read(), not map().
+     * @return the writer.
+     * @throws IOException if the file cannot be opened.
+     */
+    static GameRecordWriter open(Path path, boolean compress) throws IOException {
+        OutputStream stream = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (compress) {
+            stream = new GZIPOutputStream(stream, 1 << 16);
+        }
+        return new GameRecordWriter(new BufferedOutputStream(stream, 1 << 16));
+    }
+
+    /**
+     * Starts recording a game.
+     * @param seed The seed of the game's closed deck.
+     * @return the recording to pass events to.
+     */
+    Recording begin(long seed) {
+        return new Recording(seed);
+    }
+
+    /**
+     * Returns the number of records written.
+     * @return the record count.
+     */
+    synchronized long getGames() {
+        return games;
+    }
+
+    private synchronized void write(byte[] record, int length) {
+        try {
+            out.write(record, 0, length);
+            games++;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * The events of one game being recorded.
+     */
+    class Recording {
+        private byte[] record;
+        private int length;
+        private boolean written;
+
+        private Recording(long seed) {
+            record = new byte[GameRecord.HEADER_SIZE + 64];
+            record[0] = GameRecord.MAGIC_0;
+            record[1] = GameRecord.MAGIC_1;
+            record[2] = GameRecord.VERSION;
+            record[3] = 0;
+            for (int i = 0; i < 8; i++) {
+                record[4 + i] = (byte) (seed >>> (56 - 8 * i));
+            }
+            length = GameRecord.HEADER_SIZE;
+            written = false;
+        }
+
+        void drawOpen() {
+            add(GameRecord.DRAW_OPEN);
+        }
+
+        void drawClosed() {
+            add(GameRecord.DRAW_CLOSED);
+        }
+
+        void discard(Card card) {
+            add((byte) card.getCardID());
+        }
+
+        /**
+         * Records the knock and writes the record.
+         */
+        void knock() {
+            add(GameRecord.KNOCK);
+            finish();
+        }
+
+        /**
+         * Records that the closed deck ran out and writes the record.
+         */
+        void drawGame() {
+            add(GameRecord.DRAW_GAME);
+            finish();
+        }
+
+        /**
+         * Records that a player quit and writes the record.
+         */
+        void quit() {
+            add(GameRecord.QUIT);
+            finish();
+        }
+
+        /**
+         * Writes the record as it is, if it was not written yet.
+         */
+        void finish() {
+            if (written) {
+                return;
+            }
+            int events = length - GameRecord.HEADER_SIZE;
+            record[12] = (byte) (events >>> 8);
+            record[13] = (byte) events;
+            write(record, length);
+            written = true;
+        }
+
+        private void add(byte event) {
+            if (written || length - GameRecord.HEADER_SIZE >= GameRecord.MAX_EVENTS) {
+                return;
+            }
+            if (length == record.length) {
+                byte[] bigger = new byte[Math.min(record.length * 2, GameRecord.HEADER_SIZE + GameRecord.MAX_EVENTS)];
+                System.arraycopy(record, 0, bigger, 0, length);
+                record = bigger;
+            }
+            record[length++] = event;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * Rebuilds a recorded game (see GameRecord) from its seed and its events.
+ * The closed deck is shuffled again from the seed and dealt as Game and GameEngine deal it,
+ * then the events are applied to the decks and hands one by one, each checked by TurnMachine's
+ * rule methods. Only a knock's deadwood is not checked, since an archive may be re-scored with
+ * other meld logic (see result()).
+ * Nothing is melded or rendered on the way, so jumping to any turn costs only the card moves;
+ * call meld() on a hand to lay it out for display.
+ * A replay can be loaded with another game and reused.
+ */
+class GameReplay {
+    private final ClosedDeck closed_deck;
+    private final OpenDeck open_deck;
+    private final PlayerHand[] hands;
+    private final KnockResolver resolver;
+
+    private long seed;
+    private byte[] events;
+    private int event_count;
+    private int turn_count;
+
+    // The number of events applied, the turns completed, and whether the player to move has drawn.
+    private int position;
+    private int turn;
+    private boolean drawn;
+    private int drawn_open_card_id;
+    private byte ending;
+
+    /**
+     * Initializes an empty replay. Call load() before using it.
+     */
+    GameReplay() {
+        closed_deck = new ClosedDeck(0);
+        open_deck = new OpenDeck();
+        hands = new PlayerHand[] {new PlayerHand(), new PlayerHand()};
+        resolver = new KnockResolver();
+        events = new byte[256];
+        event_count = 0;
+        turn_count = 0;
+        rewind();
+    }
+
+    /**
+     * Loads a game and rewinds it to just after the deal.
+     * @param seed The seed of the game's closed deck.
+     * @param source The events of the game.
+     * @param offset The index of the first event in source.
+     * @param count The number of events.
+     */
+    void load(long seed, byte[] source, int offset, int count) {
+        if (events.length < count) {
+            events = new byte[Math.max(count, events.length * 2)];
+        }
+        System.arraycopy(source, offset, events, 0, count);
+        this.seed = seed;
+        event_count = count;
+
+        turn_count = 0;
+        for (int i = 0; i < count; i++) {
+            if (GameRecord.isDiscard(events[i])) {
+                turn_count++;
+            }
+        }
+        rewind();
+    }
+
+    /**
+     * Loads the current record of an archive and rewinds it to just after the deal.
+     * @param reader The reader, on a record.
+     */
+    void load(GameRecordReader reader) {
+        int count = reader.getEventCount();
+        if (events.length < count) {
+            events = new byte[Math.max(count, events.length * 2)];
+        }
+        reader.copyEvents(events);
+        load(reader.getSeed(), events, 0, count);
+    }
+
+    /**
+     * Goes back to the start of the game: the cards are dealt and no event is applied.
+     */
+    void rewind() {
+        closed_deck.reset(seed);
+        open_deck.reset();
+        hands[0].reset();
+        hands[1].reset();
+        closed_deck.deal(hands[0], hands[1], open_deck);
+
+        position = 0;
+        turn = 0;
+        drawn = false;
+        drawn_open_card_id = 0;
+        ending = 0;
+    }
+
+    /**
+     * Applies the next event.
+     * @return true if an event was applied, false at the end of the events.
+     * @throws IllegalStateException if the event is not a legal move at this point of the game.
+     */
+    boolean step() {
+        if (position == event_count || ending != 0) {
+            return false;
+        }
+
+        byte event = events[position];
+        PlayerHand hand = hands[turn & 1];
+
+        if (event == GameRecord.DRAW_OPEN) {
+            if (drawn || open_deck.length() == 0) {
+                throw illegal(event);
+            }
+            Card card = open_deck.removeLastCard();
+            hand.addCard(card);
+            drawn = true;
+            drawn_open_card_id = card.getCardID();
+        }
+        else if (event == GameRecord.DRAW_CLOSED) {
+            if (drawn || TurnMachine.isStockExhausted(closed_deck.length())) {
+                throw illegal(event);
+            }
+            hand.addCard(closed_deck.removeLastCard());
+            drawn = true;
+        }
+        else if (GameRecord.isDiscard(event)) {
+            if (!drawn || !TurnMachine.isLegalDiscard(hand.getMask(), event, drawn_open_card_id)) {
+                throw illegal(event);
+            }
+            Card card = hand.getCard(event);
+            hand.removeCardFromHand(card);
+            open_deck.addCard(card);
+            drawn = false;
+            drawn_open_card_id = 0;
+            turn++;
+        }
+        else if (GameRecord.isEnd(event)) {
+            // A knock follows a discard, or a draw that melds all 11 cards (big gin).
+            if (event == GameRecord.KNOCK
+                    && (drawn ? !TurnMachine.isBigGin(hand.getMask()) : turn == 0)) {
+                throw illegal(event);
+            }
+            ending = event;
+        }
+        else {
+            throw illegal(event);
+        }
+
+        position++;
+        return true;
+    }
+
+    private IllegalStateException illegal(byte event) {
+        return new IllegalStateException("Event " + position + " (" + GameRecord.describe(event)
+                + ") is not legal in the game with seed " + seed);
+    }
+
+    /**
+     * Moves to the start of a turn, before its draw. Turn 0 is just after the deal.
+     * Going forward applies only the events in between; going back replays from the deal.
+     * @param target The turn, between 0 and getTurnCount().
+     */
+    void seek(int target) {
+        if (target < turn || (target == turn && drawn)) {
+            rewind();
+        }
+        while (turn < target && step()) {
+        }
+    }
+
+    /**
+     * Applies every remaining event, up to and including the end of the game.
+     */
+    void seekEnd() {
+        while (step()) {
+        }
+    }
+
+    /**
+     * Returns the outcome of the game, scored with the current meld logic.
+     * The replay is moved to the end of the game first.
+     * A knock with more than 10 deadwood under the current meld logic is not scored:
+     * its result has the knocker as the winner and no KnockResult.
+     * @return the result, as GameEngine would return it.
+     */
+    GameResult result() {
+        seekEnd();
+        int deadwood0 = hands[0].calculateDeadwood();
+        int deadwood1 = hands[1].calculateDeadwood();
+        if (ending == GameRecord.KNOCK) {
+            // Big gin knocks in the turn of its draw.
+            int knocker = drawn ? turn & 1 : (turn - 1) & 1;
+            int turns = drawn ? turn + 1 : turn;
+            if (!TurnMachine.canKnock(hands[knocker].calculateDeadwood())) {
+                return new GameResult(knocker, deadwood0, deadwood1, turns, false);
+            }
+            return new GameResult(resolver.resolve(knocker, hands[knocker], hands[1 - knocker]),
+                    deadwood0, deadwood1, turns);
+        }
+        boolean stock_exhausted = ending == GameRecord.DRAW_GAME && closed_deck.length() <= 1;
+        return new GameResult(GameResult.NO_WINNER, deadwood0, deadwood1, turn, stock_exhausted);
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of turns completed so far.
+     * @return the turn, counted from 0 after the deal.
+     */
+    int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Returns the number of turns in the game.
+     * @return the number of discards in the events.
+     */
+    int getTurnCount() {
+        return turn_count;
+    }
+
+    /**
+     * Returns the player whose turn it is.
+     * @return 0 for the player who moved first, 1 for the other.
+     */
+    int getPlayerToMove() {
+        return turn & 1;
+    }
+
+    /**
+     * Returns how the game ended, if the replay got there.
+     * @return GameRecord.KNOCK, DRAW_GAME or QUIT, or 0 if no ending event was applied.
+     */
+    byte getEnding() {
+        return ending;
+    }
+
+    ClosedDeck getClosedDeck() {
+        return closed_deck;
+    }
+
+    OpenDeck getOpenDeck() {
+        return open_deck;
+    }
+
+    /**
+     * Returns a player's hand.
+     * @param player 0 for the player who moved first, 1 for the other.
+     * @return the hand.
+     */
+    PlayerHand getHand(int player) {
+        return hands[player];
+    }
+}
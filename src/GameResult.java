@@ -0,0 +1,106 @@
+/**
+ * The outcome of one headless game.
+ */
+class GameResult {
+    // Value of getWinner() and getKnocker() when nobody knocked.
+    final static int NO_WINNER = -1;
+
+    private final int winner;
+    private final int knocker;
+    private final KnockResult knock;
+    private final int deadwood0;
+    private final int deadwood1;
+    private final int turns;
+    private final boolean stock_exhausted;
+
+    /**
+     * Initializes the result of a game that was not scored: nobody knocked, or the knock
+     * is not legal under the current meld logic (see GameReplay).
+     * @param winner 0 or 1 for the player who knocked, NO_WINNER otherwise.
+     * @param deadwood0 The final deadwood of player 0.
+     * @param deadwood1 The final deadwood of player 1.
+     * @param turns The number of turns played by both players.
+     * @param stock_exhausted true if the game ended because the closed deck ran out.
+     */
+    GameResult(int winner, int deadwood0, int deadwood1, int turns, boolean stock_exhausted) {
+        this.winner = winner;
+        this.knocker = winner;
+        this.knock = null;
+        this.deadwood0 = deadwood0;
+        this.deadwood1 = deadwood1;
+        this.turns = turns;
+        this.stock_exhausted = stock_exhausted;
+    }
+
+    /**
+     * Initializes the result of a knock.
+     * @param knock The score of the knock (see KnockResolver).
+     * @param deadwood0 The final deadwood of player 0.
+     * @param deadwood1 The final deadwood of player 1.
+     * @param turns The number of turns played by both players.
+     */
+    GameResult(KnockResult knock, int deadwood0, int deadwood1, int turns) {
+        this.winner = knock.getWinner();
+        this.knocker = knock.getKnocker();
+        this.knock = knock;
+        this.deadwood0 = deadwood0;
+        this.deadwood1 = deadwood1;
+        this.turns = turns;
+        this.stock_exhausted = false;
+    }
+
+    /**
+     * Returns the player who scores: the knocker, or the defender after an undercut.
+     * @return 0 or 1, NO_WINNER if nobody knocked.
+     */
+    int getWinner() {
+        return winner;
+    }
+
+    /**
+     * Returns the player who knocked.
+     * @return 0 or 1, NO_WINNER if nobody knocked.
+     */
+    int getKnocker() {
+        return knocker;
+    }
+
+    /**
+     * Returns the points scored by the winner.
+     * @return the points, 0 if nobody knocked.
+     */
+    int getPoints() {
+        return knock == null ? 0 : knock.getPoints();
+    }
+
+    /**
+     * Returns the score of the knock.
+     * @return the knock, or null if nobody knocked.
+     */
+    KnockResult getKnock() {
+        return knock;
+    }
+
+    /**
+     * Returns a player's final deadwood.
+     * @param player 0 or 1.
+     * @return the deadwood of the player's 10 cards.
+     */
+    int getDeadwood(int player) {
+        return player == 0 ? deadwood0 : deadwood1;
+    }
+
+    int getTurns() {
+        return turns;
+    }
+
+    boolean isStockExhausted() {
+        return stock_exhausted;
+    }
+
+    @Override
+    public String toString() {
+        return "winner=" + winner + (knock == null ? "" : " " + knock) + " deadwood=" + deadwood0 + "/" + deadwood1
+                + " turns=" + turns + (stock_exhausted ? " (stock exhausted)" : "");
+    }
+}
@@ -0,0 +1,402 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hosts many games of a player against the CPU in one process, one game per TCP connection.
+ *
+ * The protocol is the console's, line by line: the server sends the screens of the game, each
+ * ending with the prompt ">>> ", and the client answers with a line whose first character is
+ * the option. The server closes the connection when the game is over.
+ *
+ * Games are not given a thread each. A few event loops own the connections, and a game runs
+ * on its loop only while it plays an answer (see Game.handle()), so a waiting game costs its
+ * Game object and a selection key. The server has no static state and never exits the process,
+ * so several servers can run side by side, such as in a test.
+ */
+class GameServer implements Closeable {
+    // Largest screen sent without allocating: the screens of one answer are about 1 KB.
+    private final static int WRITE_BUFFER_SIZE = 1 << 14;
+    private final static int READ_BUFFER_SIZE = 1 << 12;
+    // A client that lets this much of its screens pile up is dropped.
+    private final static int MAX_PENDING = 1 << 16;
+
+    private final ServerSocketChannel server;
+    private final EventLoop[] loops;
+    private final Supplier<Strategy> strategy;
+    private GameRecordWriter recorder;
+    private final Thread acceptor;
+    private volatile boolean running;
+
+    private final LongAdder started;
+    private final LongAdder finished;
+    private final LongAdder answers;
+
+    /**
+     * Opens the server socket. Call start() to accept games.
+     * @param port The TCP port, or 0 for any free port (see getPort()).
+     * @param threads The number of event loops.
+     * @param strategy Makes the CPU's strategy for each game.
+     * @throws IOException if the port cannot be bound.
+     */
+    GameServer(int port, int threads, Supplier<Strategy> strategy) throws IOException {
+        this.strategy = strategy;
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 4096);
+        loops = new EventLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            loops[i] = new EventLoop(i);
+        }
+        acceptor = new Thread(this::accept, "game-server-accept");
+        recorder = null;
+        running = false;
+        started = new LongAdder();
+        finished = new LongAdder();
+        answers = new LongAdder();
+    }
+
+    /**
+     * Records every game started from now on into an archive. The writer is shared by all the loops.
+     * @param recorder The archive writer, or null for none.
+     */
+    void setRecorder(GameRecordWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Starts the event loops and accepts connections in the background.
+     */
+    void start() {
+        running = true;
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return the TCP port.
+     */
+    int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the number of games being played.
+     * @return the number of open connections.
+     */
+    long getActiveGames() {
+        return started.sum() - finished.sum();
+    }
+
+    long getStartedGames() {
+        return started.sum();
+    }
+
+    long getFinishedGames() {
+        return finished.sum();
+    }
+
+    long getAnswers() {
+        return answers.sum();
+    }
+
+    /**
+     * Accepts connections and hands them to the event loops in turn.
+     */
+    private void accept() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = server.accept();
+                loops[next].add(channel);
+                next = next + 1 == loops.length ? 0 : next + 1;
+            }
+            catch (IOException e) {
+                if (running) {
+                    System.err.println("Could not accept a connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting, and closes every connection and game.
+     * @throws IOException if the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        server.close();
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+    }
+
+    /**
+     * The state of one connection: its game, the first character of the line being read,
+     * and the part of the screens the socket did not take yet.
+     */
+    private final static class Session {
+        private final Game game;
+        private char first;
+        private ByteBuffer pending;
+
+        Session(Game game) {
+            this.game = game;
+            first = 0;
+            pending = null;
+        }
+    }
+
+    /**
+     * A thread that owns a share of the connections and plays their games.
+     */
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final ConcurrentLinkedQueue<SocketChannel> incoming;
+        private final ByteBuffer read_buffer;
+        private final ByteBuffer write_buffer;
+        private final SplittableRandom random;
+
+        EventLoop(int number) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "game-server-" + number);
+            incoming = new ConcurrentLinkedQueue<>();
+            read_buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            write_buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            random = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+        }
+
+        /**
+         * Hands a new connection to the loop. Called from the acceptor thread.
+         */
+        void add(SocketChannel channel) {
+            incoming.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    register();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                read(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(key);
+                            }
+                        }
+                        catch (IOException e) {
+                            close(key);
+                        }
+                        catch (RuntimeException e) {
+                            // A failing game (or its recorder) ends its own session, not the loop.
+                            System.err.println("Session failed: " + e);
+                            close(key);
+                        }
+                    }
+                }
+            }
+            catch (IOException e) {
+                System.err.println("Event loop failed: " + e.getMessage());
+            }
+            finally {
+                for (SelectionKey key : selector.keys()) {
+                    close(key);
+                }
+                SocketChannel channel;
+                while ((channel = incoming.poll()) != null) {
+                    try {
+                        channel.close();
+                    }
+                    catch (IOException ignored) {
+                    }
+                }
+                try {
+                    selector.close();
+                }
+                catch (IOException ignored) {
+                }
+            }
+        }
+
+        /**
+         * Starts a game for every new connection.
+         */
+        private void register() {
+            SocketChannel channel;
+            while ((channel = incoming.poll()) != null) {
+                SelectionKey key = null;
+                try {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+
+                    Game game = new Game(strategy.get(), random.nextLong());
+                    game.setRecorder(recorder);
+                    Session session = new Session(game);
+                    key = channel.register(selector, SelectionKey.OP_READ, session);
+                    started.increment();
+
+                    game.start();
+                    send(key, session);
+                }
+                catch (IOException | RuntimeException e) {
+                    if (e instanceof RuntimeException) {
+                        System.err.println("Session failed: " + e);
+                    }
+                    if (key != null) {
+                        close(key);
+                    }
+                    else {
+                        try {
+                            channel.close();
+                        }
+                        catch (IOException ignored) {
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Reads what the client sent and plays every complete line.
+         */
+        private void read(SelectionKey key) throws IOException {
+            SocketChannel channel = (SocketChannel) key.channel();
+            Session session = (Session) key.attachment();
+
+            read_buffer.clear();
+            if (channel.read(read_buffer) < 0) {
+                close(key);
+                return;
+            }
+            read_buffer.flip();
+
+            while (read_buffer.hasRemaining() && !session.game.isOver()) {
+                byte b = read_buffer.get();
+                if (b == '\n') {
+                    if (session.first != 0) {
+                        session.game.handle(session.first);
+                        session.first = 0;
+                        answers.increment();
+                        send(key, session);
+                    }
+                }
+                else if (session.first == 0 && b > ' ') {
+                    session.first = (char) b;
+                }
+            }
+        }
+
+        /**
+         * Sends the screens of the game. What the socket does not take is kept in the session,
+         * after anything still waiting, and is sent when the socket can be written again.
+         */
+        private void send(SelectionKey key, Session session) throws IOException {
+            SocketChannel channel = (SocketChannel) key.channel();
+            CharSequence screen = session.game.getScreen();
+            ByteBuffer buffer = screen.length() <= WRITE_BUFFER_SIZE ? write_buffer : ByteBuffer.allocate(screen.length());
+
+            buffer.clear();
+            for (int i = 0; i < screen.length(); i++) {
+                char c = screen.charAt(i);
+                buffer.put(c < 128 ? (byte) c : (byte) '?');
+            }
+            buffer.flip();
+
+            if (session.pending == null) {
+                channel.write(buffer);
+                if (!buffer.hasRemaining()) {
+                    if (session.game.isOver()) {
+                        close(key);
+                    }
+                    return;
+                }
+            }
+
+            int waiting = session.pending == null ? 0 : session.pending.remaining();
+            if (waiting + buffer.remaining() > MAX_PENDING) {
+                close(key);
+                return;
+            }
+            ByteBuffer pending = ByteBuffer.allocate(waiting + buffer.remaining());
+            if (session.pending != null) {
+                pending.put(session.pending);
+            }
+            session.pending = pending.put(buffer).flip();
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Sends the rest of the screens, then goes back to reading (or closes a finished game).
+         */
+        private void write(SelectionKey key) throws IOException {
+            Session session = (Session) key.attachment();
+            ((SocketChannel) key.channel()).write(session.pending);
+            if (session.pending.hasRemaining()) {
+                return;
+            }
+            session.pending = null;
+            if (session.game.isOver()) {
+                close(key);
+            }
+            else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private void close(SelectionKey key) {
+            if (!key.channel().isOpen()) {
+                return;
+            }
+            key.cancel();
+            try {
+                key.channel().close();
+            }
+            catch (IOException ignored) {
+            }
+            finished.increment();
+        }
+    }
+
+    /**
+     * Runs a server until the process is stopped, and prints its load every 10 seconds.
+     * @param args The port (default 7777) and the number of event loops (default: one per core).
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        GameServer server = new GameServer(port, threads, GreedyStrategy::new);
+        server.start();
+        System.out.println("Listening on port " + server.getPort() + " with " + threads + " event loops");
+
+        while (true) {
+            Thread.sleep(10000);
+            System.out.printf("%d games playing, %d finished, %d answers%n",
+                    server.getActiveGames(), server.getFinishedGames(), server.getAnswers());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * An immutable snapshot of what one player can see, handed to a Strategy.
+ * All card sets are hand masks (see HandMask), so a snapshot is a few longs:
+ * cheap to make, and a strategy can look ahead by changing masks instead of copying decks.
+ */
+final class GameState {
+    private final long hand;
+    private final long discard_pile;
+    private final long opponent_known;
+    private final int open_card_id;
+    private final int drawn_open_card_id;
+    private final int stock_size;
+
+    /**
+     * Initializes the snapshot.
+     * @param hand The player's cards.
+     * @param discard_pile Every card in the open deck.
+     * @param opponent_known Cards the opponent drew from the open deck and still holds.
+     * @param open_card_id The card ID on top of the open deck, 0 if it is empty.
+     * @param drawn_open_card_id The card ID drawn from the open deck this turn (it may not be dropped), 0 if none.
+     * @param stock_size The number of cards in the closed deck.
+     */
+    GameState(long hand, long discard_pile, long opponent_known, int open_card_id,
+              int drawn_open_card_id, int stock_size) {
+        this.hand = hand;
+        this.discard_pile = discard_pile;
+        this.opponent_known = opponent_known;
+        this.open_card_id = open_card_id;
+        this.drawn_open_card_id = drawn_open_card_id;
+        this.stock_size = stock_size;
+    }
+
+    long getHand() {
+        return hand;
+    }
+
+    long getDiscardPile() {
+        return discard_pile;
+    }
+
+    long getOpponentKnown() {
+        return opponent_known;
+    }
+
+    int getOpenCardID() {
+        return open_card_id;
+    }
+
+    int getDrawnOpenCardID() {
+        return drawn_open_card_id;
+    }
+
+    int getStockSize() {
+        return stock_size;
+    }
+
+    /**
+     * Returns the cards the player has not seen: the closed deck and the rest of the opponent's hand.
+     * @return the unseen cards as a mask.
+     */
+    long getUnseen() {
+        return HandMask.FULL_DECK & ~hand & ~discard_pile & ~opponent_known;
+    }
+
+    /**
+     * Returns the deadwood of the hand, as PlayerHand.calculateDeadwood() does.
+     * @return the deadwood.
+     */
+    int deadwood() {
+        return MeldTable.handDeadwood(hand);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * The CPU player's heuristic: take the open card only if it lowers the deadwood,
+ * drop the card that leaves the least deadwood, and knock as soon as possible.
+ * With a CardTracker, drops that leave the same deadwood are broken by
+ * dropping the card the opponent is least likely to use.
+ */
+class GreedyStrategy implements Strategy {
+    private final DiscardRanking ranking = new DiscardRanking();
+    private final CardTracker tracker;
+
+    /**
+     * Initializes the strategy without card tracking.
+     */
+    GreedyStrategy() {
+        this(null);
+    }
+
+    /**
+     * Initializes the strategy.
+     * @param tracker The tracker fed from every snapshot, or null for none.
+     */
+    GreedyStrategy(CardTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public void newHand() {
+        if (tracker != null) {
+            tracker.reset();
+        }
+    }
+
+    @Override
+    public boolean drawFromOpenDeck(GameState state) {
+        if (tracker != null) {
+            tracker.observe(state);
+        }
+        if (state.getOpenCardID() == 0) {
+            return false;
+        }
+        long with_open = state.getHand() | HandMask.bitOf(state.getOpenCardID());
+        return MeldTable.handDeadwood(with_open) < state.deadwood();
+    }
+
+    @Override
+    public int chooseDiscard(GameState state) {
+        if (tracker != null) {
+            tracker.observe(state);
+        }
+        ranking.rank(state.getHand());
+
+        int best = -1;
+        for (int i = 0; i < ranking.size(); i++) {
+            int card_id = ranking.getCardID(i);
+            if (card_id == state.getDrawnOpenCardID()) {
+                continue;
+            }
+            if (best < 0) {
+                best = i;
+                if (tracker == null) {
+                    break;
+                }
+            }
+            else if (ranking.getDeadwood(i) == ranking.getDeadwood(best)) {
+                if (tracker.danger(card_id) < tracker.danger(ranking.getCardID(best))) {
+                    best = i;
+                }
+            }
+            else {
+                break;
+            }
+        }
+        return best < 0 ? 0 : ranking.getCardID(best);
+    }
+
+    @Override
+    public boolean knock(GameState state) {
+        return true;
+    }
+}
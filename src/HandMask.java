@@ -0,0 +1,102 @@
+/**
+ * Static helpers for hands represented as a 64-bit mask.
+ * Bit (card ID - 1) is set when the card is in the hand, so the 52 cards
+ * occupy bits 0 to 51, thirteen bits per suit in face value order.
+ */
+final class HandMask {
+    // Bits 0 to 12: every face value of one suit.
+    final static long SUIT_BITS = (1L << 13) - 1;
+
+    // One bit per suit for the ace: shift left by (face value - 1) for any rank.
+    final static long RANK_BITS = 1L | 1L << 13 | 1L << 26 | 1L << 39;
+
+    // All 52 cards.
+    final static long FULL_DECK = (1L << 52) - 1;
+
+    private HandMask() {
+    }
+
+    /**
+     * Returns the bit index of a card.
+     * @param card_id The card ID (1 to 52).
+     * @return the bit index (0 to 51).
+     */
+    static int index(int card_id) {
+        return card_id - 1;
+    }
+
+    /**
+     * Returns the single-bit mask of a card.
+     * @param card The card.
+     * @return a mask with only the card's bit set.
+     */
+    static long bit(Card card) {
+        return 1L << (card.getCardID() - 1);
+    }
+
+    /**
+     * Returns the single-bit mask of a card ID.
+     * @param card_id The card ID (1 to 52).
+     * @return a mask with only the card's bit set.
+     */
+    static long bitOf(int card_id) {
+        return 1L << (card_id - 1);
+    }
+
+    /**
+     * Returns the mask of every card of a suit.
+     * @param suit The suit, one of Card.SPADES, Card.HEARTS, Card.CLUBS, Card.DIAMOND.
+     * @return the 13 bits of the suit.
+     */
+    static long suit(int suit) {
+        return SUIT_BITS << (suit * 13);
+    }
+
+    /**
+     * Returns the mask of every card of a face value.
+     * @param face_value The face value (Card.ACE to Card.KING).
+     * @return the 4 bits of the face value.
+     */
+    static long rank(int face_value) {
+        return RANK_BITS << (face_value - 1);
+    }
+
+    /**
+     * Returns the 13-bit face value pattern of one suit in a hand.
+     * Bit (face value - 1) is set for every card of that suit.
+     * @param hand The hand mask.
+     * @param suit The suit.
+     * @return a value between 0 and 8191.
+     */
+    static int suitPattern(long hand, int suit) {
+        return (int) ((hand >>> (suit * 13)) & SUIT_BITS);
+    }
+
+    /**
+     * Tests if some cards form one meld: a run of 3 or more cards in a row in one suit,
+     * or a set of 3 or 4 cards of one face value.
+     * @param cards The cards.
+     * @return true if the cards are a meld.
+     */
+    static boolean isMeld(long cards) {
+        int count = Long.bitCount(cards);
+        if (count < 3) {
+            return false;
+        }
+        int index = Long.numberOfTrailingZeros(cards);
+        if (count <= 4 && (cards & ~rank(index % 13 + 1)) == 0) {
+            return true;
+        }
+        long run = ((1L << count) - 1) << index;
+        return cards == run && index / 13 == (index + count - 1) / 13;
+    }
+
+    /**
+     * Returns the number of cards in the hand.
+     * @param hand The hand mask.
+     * @return the number of set bits.
+     */
+    static int size(long hand) {
+        return Long.bitCount(hand);
+    }
+}
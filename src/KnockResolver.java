@@ -0,0 +1,186 @@
+/**
+ * Scores a knock:
+ *   - gin (the knocker has no deadwood): the knocker scores the defender's deadwood + 25,
+ *     and the defender may not lay off; big gin (all 11 cards melded, no drop) scores + 31 instead.
+ *   - otherwise the defender lays off deadwood on the knocker's melds. If the defender is left
+ *     with no more deadwood than the knocker, it is an undercut: the defender scores the
+ *     difference + 25. Else the knocker scores the difference.
+ *
+ * The defender plays the layoffs that leave it the least deadwood. A layoff may break one of its
+ * own melds, so every legal choice of layoffs is tried, each scored with MeldTable. The choices
+ * come from the knocker's melds as bitmasks: a set of three takes its fourth card, and a run
+ * takes a chain of cards below it and a chain above it. A knock has a few melds with a few
+ * chain lengths each, so this costs about as much as laying out the knocker's hand.
+ *
+ * A resolver keeps its work arrays, so it is not thread safe; use one per thread.
+ */
+final class KnockResolver {
+    final static int GIN_BONUS = 25;
+    final static int BIG_GIN_BONUS = 31;
+    final static int UNDERCUT_BONUS = 25;
+
+    // A run has a chain below and a chain above; each chain has up to 12 cards.
+    private final static int MAX_CHOICES = MeldSolver.MAX_MELDS * 2;
+    private final static int MAX_CHAIN = 13;
+
+    private final MeldSolver solver;
+    private final long[] melds;
+
+    // choices[i][0..lengths[i]]: the cards laid off by each option of choice i, the first being none.
+    private final long[][] choices;
+    private final int[] lengths;
+    private int choice_count;
+    private int best;
+    private long best_layoffs;
+
+    KnockResolver() {
+        solver = new MeldSolver();
+        melds = new long[MeldSolver.MAX_MELDS];
+        choices = new long[MAX_CHOICES][MAX_CHAIN + 1];
+        lengths = new int[MAX_CHOICES];
+    }
+
+    /**
+     * Scores a knock, with the knocker's melds laid out by MeldSolver.
+     * @param knocker 0 or 1 for the player who knocked.
+     * @param knocker_hand The knocker's 10 cards, or 11 all-melded cards for big gin.
+     * @param defender_hand The defender's 10 cards.
+     * @return the score.
+     * @throws IllegalArgumentException if the knocker has more than 10 deadwood.
+     */
+    KnockResult resolve(int knocker, long knocker_hand, long defender_hand) {
+        solver.solve(knocker_hand, 0);
+        int count = solver.getMeldCount();
+        for (int i = 0; i < count; i++) {
+            melds[i] = solver.getMeld(i);
+        }
+        return resolve(knocker, knocker_hand, melds, count, defender_hand);
+    }
+
+    /**
+     * Scores a knock, with the melds the knocker's hand is laid out with (see PlayerHand.meld()).
+     * @param knocker 0 or 1 for the player who knocked.
+     * @param knocker_hand The knocker's hand, after its drop (or with 11 cards for big gin).
+     * @param defender_hand The defender's hand.
+     * @return the score.
+     * @throws IllegalArgumentException if the knocker has more than 10 deadwood.
+     */
+    KnockResult resolve(int knocker, PlayerHand knocker_hand, PlayerHand defender_hand) {
+        if (knocker_hand.length() > 10) {
+            // The layout of an 11-card hand leaves out a discard, but big gin melds every card.
+            return resolve(knocker, knocker_hand.getMask(), defender_hand.getMask());
+        }
+        knocker_hand.meld();
+        int count = knocker_hand.getMeldCount();
+        for (int i = 0; i < count; i++) {
+            melds[i] = knocker_hand.getMeld(i);
+        }
+        return resolve(knocker, knocker_hand.getMask(), melds, count, defender_hand.getMask());
+    }
+
+    private KnockResult resolve(int knocker, long knocker_hand, long[] knocker_melds, int count, long defender_hand) {
+        long melded = 0;
+        for (int i = 0; i < count; i++) {
+            melded |= knocker_melds[i];
+        }
+        int knocker_deadwood = MeldSolver.weight(knocker_hand & ~melded);
+        if (knocker_deadwood > 10 || Long.bitCount(knocker_hand) > 11
+                || (Long.bitCount(knocker_hand) == 11 && knocker_deadwood != 0)) {
+            throw new IllegalArgumentException("Cannot knock with " + knocker_deadwood + " deadwood");
+        }
+
+        if (knocker_deadwood == 0) {
+            int defender_deadwood = MeldTable.deadwood(defender_hand);
+            boolean big_gin = Long.bitCount(knocker_hand) == 11;
+            return new KnockResult(big_gin ? KnockResult.BIG_GIN : KnockResult.GIN, knocker, knocker,
+                    defender_deadwood + (big_gin ? BIG_GIN_BONUS : GIN_BONUS), 0, defender_deadwood, 0);
+        }
+
+        collectChoices(knocker_melds, count, defender_hand & ~knocker_hand);
+        best = MeldTable.deadwood(defender_hand);
+        best_layoffs = 0;
+        search(0, defender_hand, 0);
+
+        if (best <= knocker_deadwood) {
+            return new KnockResult(KnockResult.UNDERCUT, knocker, 1 - knocker,
+                    knocker_deadwood - best + UNDERCUT_BONUS, knocker_deadwood, best, best_layoffs);
+        }
+        return new KnockResult(KnockResult.KNOCK, knocker, knocker, best - knocker_deadwood,
+                knocker_deadwood, best, best_layoffs);
+    }
+
+    /**
+     * Lists, for every meld, the cards the defender could lay off on it.
+     * @param knocker_melds The knocker's melds.
+     * @param count The number of melds.
+     * @param defender The defender's cards.
+     */
+    private void collectChoices(long[] knocker_melds, int count, long defender) {
+        choice_count = 0;
+        for (int i = 0; i < count; i++) {
+            long meld = knocker_melds[i];
+            long suit = HandMask.suit(Long.numberOfTrailingZeros(meld) / 13);
+
+            if ((meld & ~suit) == 0) {
+                // A run: chains of the defender's cards going down from its lowest card and up from its highest.
+                addChain(Long.lowestOneBit(meld), defender & suit, false);
+                addChain(Long.highestOneBit(meld), defender & suit, true);
+            }
+            else if (Long.bitCount(meld) == 3) {
+                // A set of three: its fourth card.
+                long fourth = HandMask.rank(Long.numberOfTrailingZeros(meld) % 13 + 1) & ~meld & defender;
+                if (fourth != 0) {
+                    choices[choice_count][0] = 0;
+                    choices[choice_count][1] = fourth;
+                    lengths[choice_count++] = 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the choice of laying off 0, 1, 2... cards in a row next to the end of a run.
+     * @param end The end card of the run.
+     * @param cards The defender's cards of the run's suit.
+     * @param up true to go up from the end, false to go down.
+     */
+    private void addChain(long end, long cards, boolean up) {
+        long[] options = choices[choice_count];
+        int length = 0;
+        long chain = 0;
+        long next = up ? end << 1 : end >>> 1;
+        while ((cards & next) != 0) {
+            chain |= next;
+            options[++length] = chain;
+            next = up ? next << 1 : next >>> 1;
+        }
+        if (length > 0) {
+            options[0] = 0;
+            lengths[choice_count++] = length;
+        }
+    }
+
+    /**
+     * Tries every option of the choices from one on, keeping the layoffs that leave the least deadwood.
+     * @param choice The first choice to make.
+     * @param defender The defender's cards.
+     * @param layoffs The cards laid off by the earlier choices.
+     */
+    private void search(int choice, long defender, long layoffs) {
+        if (best == 0) {
+            return;
+        }
+        if (choice == choice_count) {
+            int deadwood = MeldTable.deadwood(defender & ~layoffs);
+            if (deadwood < best) {
+                best = deadwood;
+                best_layoffs = layoffs;
+            }
+            return;
+        }
+        long[] options = choices[choice];
+        for (int i = 0; i <= lengths[choice]; i++) {
+            search(choice + 1, defender, layoffs | options[i]);
+        }
+    }
+}
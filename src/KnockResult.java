@@ -0,0 +1,87 @@
+/**
+ * The score of a knock, worked out by KnockResolver.
+ */
+final class KnockResult {
+    // How the knock ended.
+    final static int KNOCK = 0;
+    final static int UNDERCUT = 1;
+    final static int GIN = 2;
+    final static int BIG_GIN = 3;
+
+    private final static String[] NAMES = {"knock", "undercut", "gin", "big gin"};
+
+    private final int type;
+    private final int knocker;
+    private final int winner;
+    private final int points;
+    private final int knocker_deadwood;
+    private final int defender_deadwood;
+    private final long layoffs;
+
+    /**
+     * Initializes the result.
+     * @param type KNOCK, UNDERCUT, GIN or BIG_GIN.
+     * @param knocker 0 or 1 for the player who knocked.
+     * @param winner 0 or 1 for the player who scores.
+     * @param points The points scored.
+     * @param knocker_deadwood The knocker's deadwood.
+     * @param defender_deadwood The defender's deadwood after the layoffs.
+     * @param layoffs The defender's cards laid off on the knocker's melds.
+     */
+    KnockResult(int type, int knocker, int winner, int points, int knocker_deadwood, int defender_deadwood,
+                long layoffs) {
+        this.type = type;
+        this.knocker = knocker;
+        this.winner = winner;
+        this.points = points;
+        this.knocker_deadwood = knocker_deadwood;
+        this.defender_deadwood = defender_deadwood;
+        this.layoffs = layoffs;
+    }
+
+    int getType() {
+        return type;
+    }
+
+    int getKnocker() {
+        return knocker;
+    }
+
+    /**
+     * Returns the player who scores: the knocker, or the defender after an undercut.
+     * @return 0 or 1.
+     */
+    int getWinner() {
+        return winner;
+    }
+
+    int getPoints() {
+        return points;
+    }
+
+    int getKnockerDeadwood() {
+        return knocker_deadwood;
+    }
+
+    /**
+     * Returns the defender's deadwood once its cards are laid off.
+     * @return the deadwood.
+     */
+    int getDefenderDeadwood() {
+        return defender_deadwood;
+    }
+
+    /**
+     * Returns the defender's cards laid off on the knocker's melds.
+     * @return the cards as a hand mask.
+     */
+    long getLayoffs() {
+        return layoffs;
+    }
+
+    @Override
+    public String toString() {
+        return NAMES[type] + ": player " + winner + " scores " + points
+                + " (deadwood " + knocker_deadwood + " against " + defender_deadwood + ")";
+    }
+}
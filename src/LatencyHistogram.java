@@ -0,0 +1,148 @@
+import java.util.Arrays;
+
+/**
+ * Counts latencies in log-linear buckets, as HdrHistogram does: every power of two is split into
+ * 64 buckets, so any percentile is exact to within 1/64 (1.6%) from 1 ns to hours, in a fixed
+ * 30 KB array. Recording is a few instructions and never allocates.
+ *
+ * A histogram is not thread safe: give each thread its own and add() them up at the end.
+ */
+final class LatencyHistogram {
+    // Values below 2^SUB_BITS get a bucket each; above, each power of two gets 2^(SUB_BITS - 1) buckets.
+    private final static int SUB_BITS = 7;
+    private final static int SUB_COUNT = 1 << SUB_BITS;
+    private final static int HALF_COUNT = SUB_COUNT / 2;
+
+    private final long[] counts;
+    private long total;
+    private long min;
+    private long max;
+    private double sum;
+
+    LatencyHistogram() {
+        counts = new long[(64 - SUB_BITS + 1) * HALF_COUNT + HALF_COUNT];
+        reset();
+    }
+
+    /**
+     * Counts a value.
+     * @param value The latency, in any unit (usually nanoseconds); negative values count as 0.
+     */
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[index(value)]++;
+        total++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds the counts of another histogram to this one.
+     * @param other The histogram to add; it is not changed.
+     */
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets every value.
+     */
+    void reset() {
+        Arrays.fill(counts, 0);
+        total = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    long getCount() {
+        return total;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    long getMin() {
+        return total == 0 ? 0 : min;
+    }
+
+    double getMean() {
+        return total == 0 ? 0 : sum / total;
+    }
+
+    /**
+     * Returns the value below which a share of the values fall.
+     * @param percentile Between 0 and 100, such as 99.9.
+     * @return the highest value of the bucket holding the percentile (never more than getMax()),
+     *         or 0 if the histogram is empty.
+     */
+    long valueAtPercentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the bucket of a value.
+     */
+    private static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int bucket = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return bucket * HALF_COUNT + (int) (value >>> bucket);
+    }
+
+    /**
+     * Returns the highest value that falls in a bucket.
+     */
+    private static long highestValue(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int bucket = (index >> (SUB_BITS - 1)) - 1;
+        long sub = index - (long) bucket * HALF_COUNT;
+        return ((sub + 1) << bucket) - 1;
+    }
+
+    /**
+     * Writes the count and the main percentiles, such as
+     * "count 1000, mean 2.5, p50 2.1, p99 9.8, p999 15.0, max 20.3" (in microseconds).
+     * @param builder The builder to append to.
+     * @param unit The number of recorded units per microsecond, such as 1000 for nanoseconds.
+     * @return the builder.
+     */
+    StringBuilder appendTo(StringBuilder builder, double unit) {
+        return builder.append(String.format("count %d, mean %.1f, p50 %.1f, p99 %.1f, p999 %.1f, max %.1f us",
+                total, getMean() / unit, valueAtPercentile(50) / unit, valueAtPercentile(99) / unit,
+                valueAtPercentile(99.9) / unit, getMax() / unit));
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(), 1000).toString();
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * Plays many tables against a GameServer at once, to see how many games a server can hold.
+ * Every table is a connection that answers each prompt at random with (1) or (2), which
+ * are options of every screen or else ignored by the server, and opens a new game as soon
+ * as its game is over. All the tables run on one selector thread.
+ */
+class LoadGenerator {
+    private final static byte[] PROMPT = {'>', '>', '>', ' '};
+
+    private final InetSocketAddress address;
+    private final int tables;
+    private final SplittableRandom random;
+    private final ByteBuffer read_buffer;
+    private Selector selector;
+
+    private long connected;
+    private long games;
+    private long answers;
+    private long failures;
+    private final LatencyHistogram responses;
+    private long elapsed_nanos;
+
+    /**
+     * The state of one table: how much of the prompt was just read, and when the last answer was sent.
+     */
+    private final static class Table {
+        private int matched;
+        private long sent_nanos;
+    }
+
+    /**
+     * Initializes a generator.
+     * @param address The server.
+     * @param tables The number of tables to keep playing.
+     * @param seed The seed of the answers.
+     */
+    LoadGenerator(InetSocketAddress address, int tables, long seed) {
+        this.address = address;
+        this.tables = tables;
+        random = new SplittableRandom(seed);
+        read_buffer = ByteBuffer.allocate(1 << 14);
+        responses = new LatencyHistogram();
+    }
+
+    /**
+     * Opens the tables and plays for a while, then closes them.
+     * @param seconds How long to play.
+     * @throws IOException if the selector cannot be opened.
+     */
+    void run(double seconds) throws IOException {
+        selector = Selector.open();
+        try {
+            for (int i = 0; i < tables; i++) {
+                open();
+            }
+
+            long start = System.nanoTime();
+            long end = start + (long) (seconds * 1e9);
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                selector.select(Math.max(1, (end - now) / 1000000));
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isConnectable()) {
+                            ((SocketChannel) key.channel()).finishConnect();
+                            key.interestOps(SelectionKey.OP_READ);
+                            connected++;
+                        }
+                        else if (key.isReadable()) {
+                            read(key);
+                        }
+                    }
+                    catch (IOException e) {
+                        failures++;
+                        key.channel().close();
+                        open();
+                    }
+                }
+            }
+            elapsed_nanos += System.nanoTime() - start;
+        }
+        finally {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+    }
+
+    /**
+     * Opens a table: connects to the server without waiting for the connection.
+     */
+    private void open() throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Table table = new Table();
+        table.sent_nanos = System.nanoTime();
+        if (channel.connect(address)) {
+            channel.register(selector, SelectionKey.OP_READ, table);
+            connected++;
+        }
+        else {
+            channel.register(selector, SelectionKey.OP_CONNECT, table);
+        }
+    }
+
+    /**
+     * Reads the server's screens and answers the prompt, or opens a new table when the game is over.
+     */
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Table table = (Table) key.attachment();
+
+        read_buffer.clear();
+        int count = channel.read(read_buffer);
+        if (count < 0) {
+            // The game is over.
+            record(table);
+            games++;
+            channel.close();
+            open();
+            return;
+        }
+
+        boolean prompted = false;
+        for (int i = 0; i < count; i++) {
+            byte b = read_buffer.get(i);
+            if (b == PROMPT[table.matched]) {
+                table.matched++;
+                if (table.matched == PROMPT.length) {
+                    table.matched = 0;
+                    prompted = i == count - 1;
+                }
+            }
+            else {
+                table.matched = b == PROMPT[0] ? 1 : 0;
+            }
+        }
+
+        if (prompted) {
+            record(table);
+            ByteBuffer answer = ByteBuffer.wrap(random.nextInt(3) == 0 ? ANSWER_OPEN : ANSWER_CLOSED);
+            table.sent_nanos = System.nanoTime();
+            channel.write(answer);
+            answers++;
+        }
+    }
+
+    private final static byte[] ANSWER_OPEN = {'1', '\n'};
+    private final static byte[] ANSWER_CLOSED = {'2', '\n'};
+
+    /**
+     * Counts the time from the last answer (or the connection) to the server's response.
+     */
+    private void record(Table table) {
+        responses.record(System.nanoTime() - table.sent_nanos);
+    }
+
+    /**
+     * Returns the times from an answer (or a connection) to the server's response, in nanoseconds.
+     * @return the histogram.
+     */
+    LatencyHistogram getResponses() {
+        return responses;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = elapsed_nanos / 1e9;
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d tables, %d connections, %d games (%.0f games/s), %d answers (%.0f answers/s), "
+                        + "%d failures%nresponse ",
+                tables, connected, games, games / seconds, answers, answers / seconds, failures));
+        return responses.appendTo(builder, 1000).toString();
+    }
+
+    /**
+     * Plays against a server and prints the totals.
+     * @param args The host (default localhost), the port (default 7777), the number of tables (default 10000)
+     *             and the number of seconds (default 30).
+     */
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7777;
+        int tables = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        double seconds = args.length > 3 ? Double.parseDouble(args[3]) : 30;
+
+        LoadGenerator generator = new LoadGenerator(new InetSocketAddress(host, port), tables, System.nanoTime());
+        generator.run(seconds);
+        System.out.println(generator);
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Plays scripted answers against many games at once in this process, and prints the latency of
+ * each phase of an answer (see PhaseLatency) with the throughput. Unlike LoadGenerator, no
+ * sockets are involved, so this measures the game loop alone.
+ *
+ * Every thread owns a share of the tables and answers them in turn, like an event loop of
+ * GameServer. A table answers from a fixed script, starting at its own offset; answers that
+ * are not an option of the current screen are ignored by the game, as they would be for a
+ * human. A finished game is replaced by a new one.
+ */
+class LoadTest {
+    // The answers; '2' on the knock screen is ignored, and the '1' after it knocks.
+    private final static String SCRIPT = "21211221121";
+
+    private final int tables;
+    private final int threads;
+    private final PhaseLatency latency;
+    private long games;
+    private long answers;
+    private long elapsed_nanos;
+
+    /**
+     * Initializes a load test.
+     * @param tables The number of games played at once.
+     * @param threads The number of threads sharing the tables.
+     */
+    LoadTest(int tables, int threads) {
+        this.tables = tables;
+        this.threads = threads;
+        latency = new PhaseLatency();
+    }
+
+    /**
+     * Plays for a while. The totals add up over several calls.
+     * @param seconds How long to play.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    void run(double seconds) throws InterruptedException {
+        Worker[] workers = new Worker[threads];
+        Thread[] running = new Thread[threads];
+        long end = System.nanoTime() + (long) (seconds * 1e9);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            int share = tables / threads + (i < tables % threads ? 1 : 0);
+            workers[i] = new Worker(share, end);
+            running[i] = new Thread(workers[i], "load-test-" + i);
+            running[i].start();
+        }
+        for (int i = 0; i < threads; i++) {
+            running[i].join();
+            latency.add(workers[i].latency);
+            games += workers[i].games;
+            answers += workers[i].answers;
+        }
+        elapsed_nanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Forgets the totals, such as after a warm-up.
+     */
+    void reset() {
+        latency.reset();
+        games = 0;
+        answers = 0;
+        elapsed_nanos = 0;
+    }
+
+    PhaseLatency getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = elapsed_nanos / 1e9;
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d tables on %d threads: %d games (%.0f games/s), %d answers (%.0f answers/s)%n",
+                tables, threads, games, games / seconds, answers, answers / seconds));
+        return latency.appendTo(builder).toString();
+    }
+
+    /**
+     * Plays a share of the tables on one thread.
+     */
+    private final static class Worker implements Runnable {
+        private final Game[] games_playing;
+        private final int[] script_positions;
+        private final long end;
+        private final PhaseLatency latency;
+        private long games;
+        private long answers;
+
+        Worker(int share, long end) {
+            games_playing = new Game[share];
+            script_positions = new int[share];
+            this.end = end;
+            latency = new PhaseLatency();
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < games_playing.length; i++) {
+                games_playing[i] = newGame();
+                script_positions[i] = i % SCRIPT.length();
+            }
+
+            while (System.nanoTime() < end) {
+                for (int i = 0; i < games_playing.length; i++) {
+                    Game game = games_playing[i];
+                    if (game.isOver()) {
+                        games++;
+                        game = newGame();
+                        games_playing[i] = game;
+                    }
+                    game.handle(SCRIPT.charAt(script_positions[i]));
+                    script_positions[i] = script_positions[i] + 1 == SCRIPT.length() ? 0 : script_positions[i] + 1;
+                    answers++;
+                }
+            }
+        }
+
+        private Game newGame() {
+            Game game = new Game(new GreedyStrategy(), ThreadLocalRandom.current().nextLong());
+            game.setLatency(latency);
+            game.start();
+            return game;
+        }
+    }
+
+    /**
+     * Runs a load test after a warm-up, and prints the results.
+     * @param args The number of tables (default 10000), the number of seconds (default 10)
+     *             and the number of threads (default: one per core).
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int tables = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        LoadTest test = new LoadTest(tables, threads);
+        test.run(Math.min(seconds / 2, 5));
+        test.reset();
+        test.run(seconds);
+        System.out.print(test);
+    }
+}
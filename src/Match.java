@@ -0,0 +1,146 @@
+import java.util.SplittableRandom;
+
+/**
+ * A match between two strategies: hands are played until a player reaches the target score.
+ * The players take turns moving first, and every hand is dealt from a seed drawn from the
+ * match's seed, so the same seed and strategies always play the same match.
+ *
+ * A knock scores its points for the winner (see KnockResolver); a hand nobody knocks in scores
+ * nothing. At the end, the box score adds a game bonus of 100 for the winner and a line bonus
+ * of 25 per hand won, and is doubled for a shutout (the loser scored no points).
+ */
+class Match {
+    final static int TARGET = 100;
+    final static int GAME_BONUS = 100;
+    final static int LINE_BONUS = 25;
+
+    // A match cannot go on for more hands than this; the player ahead then wins (see play()).
+    final static int MAX_HANDS = 500;
+
+    private final GameEngine[] engines;
+    private final long seed;
+    private final int target;
+
+    private final int[] points;
+    private final int[] hands_won;
+    private int hands;
+    private int winner;
+
+    /**
+     * Initializes a match to the usual 100 points.
+     * @param strategy0 The strategy of player 0, who moves first in the first hand.
+     * @param strategy1 The strategy of player 1.
+     * @param seed The seed the hands are dealt from.
+     */
+    Match(Strategy strategy0, Strategy strategy1, long seed) {
+        this(strategy0, strategy1, seed, TARGET);
+    }
+
+    /**
+     * Initializes a match.
+     * @param strategy0 The strategy of player 0, who moves first in the first hand.
+     * @param strategy1 The strategy of player 1.
+     * @param seed The seed the hands are dealt from.
+     * @param target The score that ends the match.
+     */
+    Match(Strategy strategy0, Strategy strategy1, long seed, int target) {
+        // One engine per player moving first; the decks are reset for every hand.
+        engines = new GameEngine[] {new GameEngine(strategy0, strategy1, 0), new GameEngine(strategy1, strategy0, 0)};
+        this.seed = seed;
+        this.target = target;
+        points = new int[2];
+        hands_won = new int[2];
+        hands = 0;
+        winner = GameResult.NO_WINNER;
+    }
+
+    /**
+     * Plays the match to the end. A match stopped at MAX_HANDS with the points tied goes to
+     * the player who won more hands, and if those are tied too, to a coin toss drawn from
+     * the match's seed, so that neither seat is favoured.
+     * @return the winner, 0 or 1.
+     */
+    int play() {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        while (points[0] < target && points[1] < target && hands < MAX_HANDS) {
+            int first = hands & 1;
+            GameEngine engine = engines[first];
+            engine.reset(seeds.nextLong());
+            GameResult result = engine.play();
+            hands++;
+
+            if (result.getWinner() != GameResult.NO_WINNER) {
+                // The engine's player 0 is whoever moved first.
+                int player = result.getWinner() == 0 ? first : 1 - first;
+                points[player] += result.getPoints();
+                hands_won[player]++;
+            }
+        }
+        if (points[0] != points[1]) {
+            winner = points[1] > points[0] ? 1 : 0;
+        }
+        else if (hands_won[0] != hands_won[1]) {
+            winner = hands_won[1] > hands_won[0] ? 1 : 0;
+        }
+        else {
+            winner = seeds.nextInt(2);
+        }
+        return winner;
+    }
+
+    /**
+     * Returns the winner of the match.
+     * @return 0 or 1, GameResult.NO_WINNER before play().
+     */
+    int getWinner() {
+        return winner;
+    }
+
+    /**
+     * Returns the points a player scored in the hands, without the bonuses.
+     * @param player 0 or 1.
+     * @return the points.
+     */
+    int getPoints(int player) {
+        return points[player];
+    }
+
+    /**
+     * Returns the number of hands a player won.
+     * @param player 0 or 1.
+     * @return the number of hands won.
+     */
+    int getHandsWon(int player) {
+        return hands_won[player];
+    }
+
+    int getHands() {
+        return hands;
+    }
+
+    /**
+     * Returns a player's box score: the points, the game bonus for the winner,
+     * 25 per hand won, all doubled for a shutout.
+     * @param player 0 or 1.
+     * @return the box score, 0 before play().
+     */
+    int getBoxScore(int player) {
+        if (winner == GameResult.NO_WINNER) {
+            return 0;
+        }
+        int score = points[player] + LINE_BONUS * hands_won[player];
+        if (player == winner) {
+            score += GAME_BONUS;
+            if (points[1 - player] == 0) {
+                score *= 2;
+            }
+        }
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "winner=" + winner + " points=" + points[0] + "/" + points[1] + " hands=" + hands_won[0] + "/"
+                + hands_won[1] + " of " + hands + " box=" + getBoxScore(0) + "/" + getBoxScore(1);
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * Exact minimum-deadwood solver over hand masks (see HandMask).
+ *
+ * The search always looks at the lowest card left in the hand. That card is either
+ * deadwood, the discard, or the lowest card of a meld: a run of 3 or more cards
+ * starting at it, or a set of 3 or 4 cards containing it. Every other card of such a
+ * meld has a higher bit, so each arrangement of the hand is visited once.
+ */
+class MeldSolver {
+    // Larger than any possible deadwood: marks an impossible arrangement.
+    final static int NO_SOLUTION = 1000;
+
+    // A meld has 3 or more cards, so even the whole deck holds at most 17 melds.
+    final static int MAX_MELDS = 52 / 3;
+
+    // Deadwood weight of every bit index.
+    final static int[] WEIGHT = new int[52];
+
+    static {
+        for (int index = 0; index < 52; index++) {
+            WEIGHT[index] = Math.min(index % 13 + 1, 10);
+        }
+    }
+
+    private final long[] melds;
+    private int meld_count;
+    private long discard;
+    private int deadwood;
+
+    /**
+     * Constructs a solver with room for the melds of one arrangement.
+     */
+    MeldSolver() {
+        melds = new long[MAX_MELDS];
+        meld_count = 0;
+        discard = 0;
+        deadwood = 0;
+    }
+
+    /**
+     * Returns the least deadwood of a hand where every card must be melded or counted.
+     * @param hand The hand mask.
+     * @return the minimum deadwood.
+     */
+    static int minDeadwood(long hand) {
+        return search(hand, 0, NO_SOLUTION);
+    }
+
+    /**
+     * Returns the least deadwood of a hand after discarding exactly one card.
+     * @param hand The hand mask. It must not be empty.
+     * @return the minimum deadwood of the remaining cards.
+     */
+    static int minDeadwoodAfterDiscard(long hand) {
+        return search(hand, 1, NO_SOLUTION);
+    }
+
+    /**
+     * Returns the deadwood weight of every card in a mask.
+     * @param cards The cards to count.
+     * @return the sum of the weights.
+     */
+    static int weight(long cards) {
+        int sum = 0;
+        while (cards != 0) {
+            sum += WEIGHT[Long.numberOfTrailingZeros(cards)];
+            cards &= cards - 1;
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the least deadwood arrangement of a hand and keeps its melds and discard.
+     * @param hand The hand mask.
+     * @param discards 1 to leave out exactly one card (an 11-card hand), 0 otherwise.
+     * @return the minimum deadwood.
+     */
+    int solve(long hand, int discards) {
+        meld_count = 0;
+        discard = 0;
+        deadwood = MeldTable.deadwood(hand, discards);
+
+        // Walk the search again, following an option that reaches the best value.
+        // MeldTable gives the value of each option in constant time.
+        int remaining = deadwood;
+        while (hand != 0) {
+            int index = Long.numberOfTrailingZeros(hand);
+            long low = hand & -hand;
+            long meld = findMeld(hand, index, discards, remaining);
+
+            if (meld != 0) {
+                melds[meld_count++] = meld;
+                hand &= ~meld;
+            }
+            else if (WEIGHT[index] + MeldTable.deadwood(hand ^ low, discards) == remaining) {
+                remaining -= WEIGHT[index];
+                hand ^= low;
+            }
+            else {
+                discard = low;
+                discards--;
+                hand ^= low;
+            }
+        }
+        return deadwood;
+    }
+
+    /**
+     * Returns the number of melds found by the last solve().
+     * @return the meld count.
+     */
+    int getMeldCount() {
+        return meld_count;
+    }
+
+    /**
+     * Returns one meld of the last solve(). Runs come before sets.
+     * @param i The meld number, between 0 and getMeldCount() - 1.
+     * @return the cards of the meld as a mask.
+     */
+    long getMeld(int i) {
+        return melds[i];
+    }
+
+    /**
+     * Returns the discarded card of the last solve(), or 0 if nothing was discarded.
+     * @return the discard as a single-bit mask.
+     */
+    long getDiscard() {
+        return discard;
+    }
+
+    /**
+     * Returns the deadwood of the last solve().
+     * @return the minimum deadwood.
+     */
+    int getDeadwood() {
+        return deadwood;
+    }
+
+    /**
+     * Returns a meld starting at the lowest card that keeps the best value, or 0 if none.
+     * Runs are tried before sets, longest first.
+     */
+    private static long findMeld(long hand, int index, int discards, int target) {
+        long low = 1L << index;
+        int face = index % 13;
+
+        // Longest run first, so a long sequence is not split in two.
+        int length = 1;
+        while (face + length <= 12 && (hand & (low << length)) != 0) {
+            length++;
+        }
+        for (; length >= 3; length--) {
+            long run = ((1L << length) - 1) << index;
+            if (MeldTable.deadwood(hand & ~run, discards) == target) {
+                return run;
+            }
+        }
+
+        long others = hand & (HandMask.RANK_BITS << face) & ~low;
+        if (Long.bitCount(others) >= 2) {
+            for (long sub = others; sub != 0; sub = (sub - 1) & others) {
+                if (Long.bitCount(sub) >= 2 && MeldTable.deadwood(hand & ~(sub | low), discards) == target) {
+                    return sub | low;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the least deadwood of the hand, or any value >= limit when it cannot beat limit.
+     * @param hand The cards left to place.
+     * @param discards The number of cards that still must be discarded.
+     * @param limit The best value known by the caller (branch and bound).
+     */
+    private static int search(long hand, int discards, int limit) {
+        if (hand == 0) {
+            return discards == 0 ? 0 : NO_SOLUTION;
+        }
+
+        int index = Long.numberOfTrailingZeros(hand);
+        long low = hand & -hand;
+        long rest = hand ^ low;
+        int face = index % 13;
+        int best = limit;
+
+        // Try the melds first: they find small values early and tighten the bound.
+        long run = low;
+        for (int k = 1; face + k <= 12 && (hand & (low << k)) != 0; k++) {
+            run |= low << k;
+            if (k >= 2) {
+                best = Math.min(best, search(hand & ~run, discards, best));
+                if (best == 0) {
+                    return 0;
+                }
+            }
+        }
+
+        long others = rest & (HandMask.RANK_BITS << face);
+        if (Long.bitCount(others) >= 2) {
+            for (long sub = others; sub != 0; sub = (sub - 1) & others) {
+                if (Long.bitCount(sub) >= 2) {
+                    best = Math.min(best, search(rest & ~sub, discards, best));
+                    if (best == 0) {
+                        return 0;
+                    }
+                }
+            }
+        }
+
+        if (discards > 0) {
+            best = Math.min(best, search(rest, discards - 1, best));
+        }
+
+        if (WEIGHT[index] < best) {
+            best = Math.min(best, WEIGHT[index] + search(rest, discards, best - WEIGHT[index]));
+        }
+        return best;
+    }
+}
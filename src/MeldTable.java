@@ -0,0 +1,198 @@
+/**
+ * Constant-time deadwood evaluation from precomputed tables.
+ *
+ * Runs never leave a suit, so the least deadwood of the cards of one suit that are
+ * not in a set depends only on that suit's 13-bit pattern (see HandMask.suitPattern).
+ * Those values are tabled once for all 8192 patterns. A set uses 3 or 4 cards of one
+ * face value, and a 10 or 11-card hand has at most 3 face values with 3 or more cards,
+ * so a hand is evaluated by trying the few set choices and adding 4 table entries.
+ *
+ * The tables are built when the class is first used; this takes well under a millisecond.
+ */
+final class MeldTable {
+    // Least deadwood of a suit pattern using runs only; read directly by DeadwoodBatch.
+    final static byte[] RUN_DEADWOOD = new byte[8192];
+
+    // Least deadwood of a suit pattern using runs only, after discarding one of its cards.
+    private final static byte[] RUN_DEADWOOD_DISCARD = new byte[8192];
+
+    static {
+        for (int pattern = 1; pattern < 8192; pattern++) {
+            int face = Integer.numberOfTrailingZeros(pattern);
+            int low = pattern & -pattern;
+            int weight = MeldSolver.WEIGHT[face];
+
+            // The lowest card is deadwood, the discard, or starts a run.
+            int best = weight + RUN_DEADWOOD[pattern ^ low];
+            int best_discard = RUN_DEADWOOD[pattern ^ low];
+            if (pattern != low) {
+                best_discard = Math.min(best_discard, weight + RUN_DEADWOOD_DISCARD[pattern ^ low]);
+            }
+
+            int run = low;
+            for (int k = 1; face + k <= 12 && (pattern & (low << k)) != 0; k++) {
+                run |= low << k;
+                if (k >= 2) {
+                    int rest = pattern & ~run;
+                    best = Math.min(best, RUN_DEADWOOD[rest]);
+                    if (rest != 0) {
+                        best_discard = Math.min(best_discard, RUN_DEADWOOD_DISCARD[rest]);
+                    }
+                }
+            }
+
+            RUN_DEADWOOD[pattern] = (byte) best;
+            RUN_DEADWOOD_DISCARD[pattern] = (byte) best_discard;
+        }
+    }
+
+    private MeldTable() {
+    }
+
+    /**
+     * Returns the least deadwood of a hand where every card must be melded or counted.
+     * @param hand The hand mask.
+     * @return the minimum deadwood.
+     */
+    static int deadwood(long hand) {
+        return evaluate(hand, setRanks(hand), 0);
+    }
+
+    /**
+     * Returns the least deadwood of a hand after discarding exactly one card.
+     * @param hand The hand mask. It must not be empty.
+     * @return the minimum deadwood of the remaining cards.
+     */
+    static int deadwoodAfterDiscard(long hand) {
+        return evaluate(hand, setRanks(hand), 1);
+    }
+
+    /**
+     * Returns the least deadwood of a hand.
+     * @param hand The hand mask.
+     * @param discards 1 to leave out exactly one card, 0 otherwise.
+     * @return the minimum deadwood.
+     */
+    static int deadwood(long hand, int discards) {
+        return evaluate(hand, setRanks(hand), discards);
+    }
+
+    /**
+     * Returns the least deadwood for 10 cards: with one discard when the hand has more.
+     * This matches PlayerHand.calculateDeadwood().
+     * @param hand The hand mask.
+     * @return the minimum deadwood.
+     */
+    static int handDeadwood(long hand) {
+        return Long.bitCount(hand) > 10 ? deadwoodAfterDiscard(hand) : deadwood(hand);
+    }
+
+    /**
+     * Writes the least deadwood left after discarding each card of a hand.
+     * The face values with a possible set are found once for the whole hand;
+     * a discard only changes them when it takes a face value from 3 cards to 2.
+     * @param hand The hand mask.
+     * @param card_ids Filled with the card IDs of the hand, in card ID order.
+     * @param deadwoods Filled with the deadwood left after discarding the matching card.
+     * @return the number of cards written.
+     */
+    static int deadwoodOfDiscards(long hand, int[] card_ids, int[] deadwoods) {
+        int set_ranks = setRanks(hand);
+        int count = 0;
+
+        for (long cards = hand; cards != 0; cards &= cards - 1) {
+            int index = Long.numberOfTrailingZeros(cards);
+            long bit = cards & -cards;
+            int face = index % 13;
+
+            int ranks = set_ranks;
+            if (Long.bitCount(hand & (HandMask.RANK_BITS << face)) == 3) {
+                ranks &= ~(1 << face);
+            }
+
+            card_ids[count] = index + 1;
+            deadwoods[count] = evaluate(hand ^ bit, ranks, 0);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the face values that have 3 or 4 cards in the hand.
+     * @param hand The hand mask.
+     * @return a 13-bit mask, bit (face value - 1) set for every such face value.
+     */
+    static int setRanks(long hand) {
+        int a = HandMask.suitPattern(hand, Card.SPADES);
+        int b = HandMask.suitPattern(hand, Card.HEARTS);
+        int c = HandMask.suitPattern(hand, Card.CLUBS);
+        int d = HandMask.suitPattern(hand, Card.DIAMOND);
+        return (a & b & (c | d)) | (c & d & (a | b));
+    }
+
+    /**
+     * Returns the least deadwood of the runs of each suit, with no sets.
+     * @param hand The hand mask.
+     * @param discards 1 to leave out exactly one card, 0 otherwise.
+     * @return the minimum deadwood, or at least MeldSolver.NO_SOLUTION if there is no card to discard.
+     */
+    static int runDeadwood(long hand, int discards) {
+        int p0 = HandMask.suitPattern(hand, Card.SPADES);
+        int p1 = HandMask.suitPattern(hand, Card.HEARTS);
+        int p2 = HandMask.suitPattern(hand, Card.CLUBS);
+        int p3 = HandMask.suitPattern(hand, Card.DIAMOND);
+        int r0 = RUN_DEADWOOD[p0];
+        int r1 = RUN_DEADWOOD[p1];
+        int r2 = RUN_DEADWOOD[p2];
+        int r3 = RUN_DEADWOOD[p3];
+        int total = r0 + r1 + r2 + r3;
+        if (discards == 0) {
+            return total;
+        }
+
+        // Discard from the suit where it costs the least (or saves the most).
+        int cost = MeldSolver.NO_SOLUTION;
+        if (p0 != 0) {
+            cost = Math.min(cost, RUN_DEADWOOD_DISCARD[p0] - r0);
+        }
+        if (p1 != 0) {
+            cost = Math.min(cost, RUN_DEADWOOD_DISCARD[p1] - r1);
+        }
+        if (p2 != 0) {
+            cost = Math.min(cost, RUN_DEADWOOD_DISCARD[p2] - r2);
+        }
+        if (p3 != 0) {
+            cost = Math.min(cost, RUN_DEADWOOD_DISCARD[p3] - r3);
+        }
+        return total + cost;
+    }
+
+    /**
+     * Tries every set choice for the face values left in set_ranks.
+     * @param hand The cards not yet placed in a set.
+     * @param set_ranks The face values still to decide, as a 13-bit mask.
+     * @param discards 1 to leave out exactly one card, 0 otherwise.
+     * @return the minimum deadwood.
+     */
+    static int evaluate(long hand, int set_ranks, int discards) {
+        if (set_ranks == 0) {
+            return runDeadwood(hand, discards);
+        }
+
+        int face = Integer.numberOfTrailingZeros(set_ranks);
+        int rest = set_ranks & (set_ranks - 1);
+        long cards = hand & (HandMask.RANK_BITS << face);
+
+        // No set, or a set of every card of the face value.
+        int best = evaluate(hand, rest, discards);
+        best = Math.min(best, evaluate(hand & ~cards, rest, discards));
+
+        // With 4 cards, a set of 3 leaves one card for a run or the deadwood.
+        if (Long.bitCount(cards) == 4) {
+            for (long left = cards; left != 0; left &= left - 1) {
+                best = Math.min(best, evaluate(hand & ~(cards ^ (left & -left)), rest, discards));
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,597 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A CPU opponent that searches by single-observer Information-Set Monte Carlo Tree Search.
+ *
+ * The tree is grown from the searching player's point of view: a node is an information set,
+ * reached by the moves the player has seen, that is its own draws, drops and knock decisions,
+ * and the opponent's draw sources, drops and knock decisions. What the opponent holds and the
+ * order of the decks are hidden, so every iteration first samples them consistently with what
+ * the player has seen: the opponent keeps the cards it is known to hold
+ * (GameState.getOpponentKnown()) and gets the rest of its hand from the unseen cards, the
+ * leftover unseen cards become the closed deck in a random order, and the open deck keeps its
+ * top card over the rest of its cards in a random order.
+ *
+ * An iteration then walks down the tree. At each node it picks, among the moves legal in its
+ * sample, the one with the best UCB1 value for the player to move, where the exploration term
+ * counts the iterations a move was legal in rather than the visits of its parent. The first
+ * move not yet in the tree is added, the game is played out with the greedy policy, and the
+ * result is added to every node on the way. Every knock is scored by KnockResolver, so an
+ * undercut counts as a loss for the knocker.
+ *
+ * The search stops when the time budget of the move runs out. Each worker thread grows its
+ * own tree in a Playout, whose nodes and sampled game are primitive arrays allocated once, so
+ * an iteration allocates only the KnockResult of its knock. The Playouts are reused as the
+ * workers' tasks for every decision, and their root visits are added up in an array kept on
+ * the strategy, so a decision allocates nothing either. The most visited root move is played.
+ */
+class MonteCarloStrategy implements Strategy {
+    // A game is scored as a draw once this many turns are played from the root.
+    private final static int MAX_PLAYOUT_TURNS = 200;
+
+    // UCB1 exploration constant.
+    private final static double EXPLORATION = 0.7;
+
+    // The nodes of one worker's tree. A full tree stops growing, and its iterations play out from its leaves.
+    private final static int MAX_NODES = 1 << 16;
+
+    // The decision a node (or the root) is waiting for.
+    private final static int DRAW_PHASE = 0;
+    private final static int DISCARD_PHASE = 1;
+    private final static int KNOCK_PHASE = 2;
+
+    private final long budget_nanos;
+    private final Playout[] playouts;
+    private final long[] visits;
+    private final ForkJoinPool pool;
+    private long total_playouts;
+    private long total_nanos;
+    private double last_playouts_per_second;
+
+    /**
+     * Initializes the strategy with a pool of its own, of one thread per worker.
+     * @param budget_millis The time to search each decision, in milliseconds.
+     * @param workers The number of trees searched in parallel.
+     * @param seed The seed of the sampling, for repeatable searches with one worker.
+     */
+    MonteCarloStrategy(long budget_millis, int workers, long seed) {
+        this(budget_millis, workers, seed, new ForkJoinPool(Math.max(1, workers)));
+    }
+
+    /**
+     * Initializes the strategy.
+     * @param budget_millis The time to search each decision, in milliseconds.
+     * @param workers The number of trees searched in parallel.
+     * @param seed The seed of the sampling, for repeatable searches with one worker.
+     * @param pool The pool the workers run on. It should have a thread per worker, since
+     *             a worker holds its thread for the whole budget.
+     */
+    MonteCarloStrategy(long budget_millis, int workers, long seed, ForkJoinPool pool) {
+        this.budget_nanos = budget_millis * 1_000_000L;
+        this.pool = pool;
+        SplittableRandom random = new SplittableRandom(seed);
+        playouts = new Playout[Math.max(1, workers)];
+        for (int w = 0; w < playouts.length; w++) {
+            playouts[w] = new Playout(random.split());
+        }
+        visits = new long[Playout.ACTIONS];
+        total_playouts = 0;
+        total_nanos = 0;
+        last_playouts_per_second = 0;
+    }
+
+    /**
+     * Initializes the strategy with a 50 ms budget on every core.
+     */
+    MonteCarloStrategy() {
+        this(50, Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    @Override
+    public boolean drawFromOpenDeck(GameState state) {
+        if (state.getOpenCardID() == 0) {
+            return false;
+        }
+        return search(state, DRAW_PHASE) == Playout.DRAW_OPEN;
+    }
+
+    @Override
+    public int chooseDiscard(GameState state) {
+        return search(state, DISCARD_PHASE);
+    }
+
+    /**
+     * Searches knocking against playing on: a knock with more deadwood than the
+     * opponent is likely to hold loses to an undercut.
+     */
+    @Override
+    public boolean knock(GameState state) {
+        return search(state, KNOCK_PHASE) == Playout.KNOCK;
+    }
+
+    /**
+     * Returns the playouts per second of the last decision.
+     * @return the playout rate.
+     */
+    double getPlayoutsPerSecond() {
+        return last_playouts_per_second;
+    }
+
+    /**
+     * Returns the number of playouts over every decision so far.
+     * @return the playout count.
+     */
+    long getTotalPlayouts() {
+        return total_playouts;
+    }
+
+    /**
+     * Returns the playouts per second over every decision so far.
+     * @return the playout rate.
+     */
+    double getAveragePlayoutsPerSecond() {
+        return total_nanos == 0 ? 0 : total_playouts * 1e9 / total_nanos;
+    }
+
+    /**
+     * Grows a tree on every worker until the budget runs out. A single worker searches on the calling thread.
+     * @param state The snapshot to search from.
+     * @param phase DRAW_PHASE, DISCARD_PHASE or KNOCK_PHASE.
+     * @return the most visited root move: Playout.DRAW_OPEN or DRAW_CLOSED, a card ID to drop,
+     *         or Playout.KNOCK or CONTINUE.
+     */
+    private int search(GameState state, int phase) {
+        long start = System.nanoTime();
+        long deadline = start + budget_nanos;
+
+        for (Playout playout : playouts) {
+            playout.prepare(state, phase, deadline);
+        }
+        if (playouts.length == 1) {
+            playouts[0].compute();
+        }
+        else {
+            for (Playout playout : playouts) {
+                pool.execute(playout);
+            }
+            for (Playout playout : playouts) {
+                playout.join();
+            }
+        }
+
+        long playout_count = 0;
+        Arrays.fill(visits, 0);
+        for (Playout playout : playouts) {
+            playout_count += playout.getIterations();
+            playout.addRootVisits(visits);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        total_playouts += playout_count;
+        total_nanos += elapsed;
+        last_playouts_per_second = playout_count * 1e9 / Math.max(1, elapsed);
+
+        int best = 0;
+        for (int action = 1; action < Playout.ACTIONS; action++) {
+            if (visits[action] > visits[best]) {
+                best = action;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * One worker's tree, and the sampled game its iterations play.
+     * All of its arrays are allocated once, so an iteration only changes primitive fields.
+     * The turn loop is a deliberately specialised copy of GameEngine's on bare masks,
+     * but every rule it applies is one of TurnMachine's rule methods.
+     * It is its worker's task, prepared and run again for every decision.
+     */
+    private final static class Playout extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        // Moves: card IDs 1 to 52 are drops.
+        final static int DRAW_CLOSED = 53;
+        final static int DRAW_OPEN = 54;
+        final static int KNOCK = 55;
+        final static int CONTINUE = 56;
+        final static int ACTIONS = 57;
+
+        // What apply() returns for a move that does not end the game; the others are scores.
+        private final static int NOT_OVER = -1;
+        private final static int NONE = -1;
+
+        private final SplittableRandom random;
+        private final KnockResolver resolver;
+        private final int[] unseen;
+        private final int[] discard_ids;
+        private final int[] discard_deadwoods;
+        private final int[] legal;
+        private final int[] children;
+        private final int[] path;
+
+        // The tree, node 0 being the root: the move into each node, the player who made it,
+        // the first child and next sibling, and the visits, the iterations the move was legal in,
+        // and the score in half points for the player who made it.
+        private final int[] node_action;
+        private final byte[] node_player;
+        private final int[] node_child;
+        private final int[] node_sibling;
+        private final int[] node_visits;
+        private final int[] node_available;
+        private final long[] node_score;
+        private int node_count;
+
+        // The sampled game. Player 0 is the searching player, player 1 the opponent.
+        private final long[] hands;
+        private final byte[] stock;
+        private final byte[] pile;
+        private int stock_size;
+        private int pile_size;
+        private int player;
+        private int phase;
+        private int drawn_open;
+        private int turns;
+
+        // The decision being searched.
+        private GameState root_state;
+        private int root_phase;
+        private long deadline;
+        private long iterations;
+
+        Playout(SplittableRandom random) {
+            this.random = random;
+            resolver = new KnockResolver();
+            unseen = new int[52];
+            discard_ids = new int[52];
+            discard_deadwoods = new int[52];
+            legal = new int[52];
+            children = new int[52];
+            path = new int[3 * MAX_PLAYOUT_TURNS + 4];
+
+            node_action = new int[MAX_NODES];
+            node_player = new byte[MAX_NODES];
+            node_child = new int[MAX_NODES];
+            node_sibling = new int[MAX_NODES];
+            node_visits = new int[MAX_NODES];
+            node_available = new int[MAX_NODES];
+            node_score = new long[MAX_NODES];
+
+            hands = new long[2];
+            stock = new byte[52];
+            pile = new byte[52];
+        }
+
+        /**
+         * Sets the decision the next run searches.
+         * @param state The snapshot to search from.
+         * @param phase DRAW_PHASE, DISCARD_PHASE or KNOCK_PHASE.
+         * @param deadline The System.nanoTime() to stop at.
+         */
+        void prepare(GameState state, int phase, long deadline) {
+            reinitialize();
+            root_state = state;
+            root_phase = phase;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Grows a new tree from the snapshot until the deadline, and at least until every root move is tried.
+         */
+        @Override
+        protected void compute() {
+            node_count = 1;
+            node_child[0] = NONE;
+            node_visits[0] = 0;
+
+            determinize(root_state, root_phase);
+            int root_moves = legalMoves();
+            iterations = 0;
+            while (System.nanoTime() < deadline || iterations < root_moves) {
+                if (iterations > 0) {
+                    determinize(root_state, root_phase);
+                }
+                iterate();
+                iterations++;
+            }
+            root_state = null;
+        }
+
+        /**
+         * Returns the iterations of the last run.
+         * @return the iteration count.
+         */
+        long getIterations() {
+            return iterations;
+        }
+
+        /**
+         * Adds the visits of each root move to a total.
+         * @param visits The visits, indexed by move.
+         */
+        void addRootVisits(long[] visits) {
+            for (int child = node_child[0]; child != NONE; child = node_sibling[child]) {
+                visits[node_action[child]] += node_visits[child];
+            }
+        }
+
+        /**
+         * Samples the opponent's hidden cards, the closed deck order, and the open deck order
+         * below its top card, and puts the game at the root.
+         */
+        private void determinize(GameState state, int root_phase) {
+            long known = state.getOpponentKnown();
+            long hidden = state.getUnseen();
+            int count = 0;
+            for (long cards = hidden; cards != 0; cards &= cards - 1) {
+                unseen[count++] = Long.numberOfTrailingZeros(cards) + 1;
+            }
+
+            // Fisher-Yates over the unseen cards.
+            for (int i = count - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int temp = unseen[i];
+                unseen[i] = unseen[j];
+                unseen[j] = temp;
+            }
+
+            int to_opponent = Math.max(0, 10 - Long.bitCount(known));
+            long opponent = known;
+            for (int i = 0; i < to_opponent && i < count; i++) {
+                opponent |= HandMask.bitOf(unseen[i]);
+            }
+
+            stock_size = 0;
+            for (int i = to_opponent; i < count; i++) {
+                stock[stock_size++] = (byte) unseen[i];
+            }
+
+            // The open deck: its top card over the rest of its cards, in a random order.
+            int top = state.getOpenCardID();
+            long below = state.getDiscardPile() & ~(top == 0 ? 0 : HandMask.bitOf(top));
+            pile_size = 0;
+            for (long cards = below; cards != 0; cards &= cards - 1) {
+                pile[pile_size++] = (byte) (Long.numberOfTrailingZeros(cards) + 1);
+            }
+            for (int i = pile_size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                byte temp = pile[i];
+                pile[i] = pile[j];
+                pile[j] = temp;
+            }
+            if (top != 0) {
+                pile[pile_size++] = (byte) top;
+            }
+
+            hands[0] = state.getHand();
+            hands[1] = opponent;
+            player = 0;
+            phase = root_phase;
+            drawn_open = state.getDrawnOpenCardID();
+            turns = 0;
+        }
+
+        /**
+         * Walks down the tree and adds a node, plays the game out, and scores the nodes on the way.
+         */
+        private void iterate() {
+            int node = 0;
+            int depth = 0;
+            path[depth++] = node;
+            int result = NOT_OVER;
+
+            while (result == NOT_OVER) {
+                int choice = select(node, legalMoves());
+                if (choice < 0) {
+                    // ~choice is a move not yet in the tree.
+                    int child = expand(node, ~choice);
+                    result = apply(~choice);
+                    if (child != NONE) {
+                        path[depth++] = child;
+                    }
+                    break;
+                }
+                result = apply(node_action[choice]);
+                node = choice;
+                path[depth++] = node;
+            }
+            if (result == NOT_OVER) {
+                result = rollout();
+            }
+
+            for (int i = 0; i < depth; i++) {
+                int n = path[i];
+                node_visits[n]++;
+                node_score[n] += node_player[n] == 0 ? result : 2 - result;
+            }
+        }
+
+        /**
+         * Picks the child of a node to walk to among the legal moves.
+         * @return the child with the best UCB1 value, or ~move for a random legal move
+         *         that is not in the tree yet.
+         */
+        private int select(int node, int count) {
+            int untried = 0;
+            for (int i = 0; i < count; i++) {
+                int child = node_child[node];
+                while (child != NONE && node_action[child] != legal[i]) {
+                    child = node_sibling[child];
+                }
+                if (child == NONE) {
+                    legal[untried++] = legal[i];
+                }
+                else {
+                    children[i - untried] = child;
+                }
+            }
+            if (untried > 0) {
+                return ~legal[random.nextInt(untried)];
+            }
+
+            int best = children[0];
+            double best_value = -1;
+            for (int i = 0; i < count; i++) {
+                int child = children[i];
+                node_available[child]++;
+                double mean = node_score[child] / (2.0 * node_visits[child]);
+                double value = mean + EXPLORATION * Math.sqrt(Math.log(node_available[child]) / node_visits[child]);
+                if (value > best_value) {
+                    best_value = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Adds a node for a move of the player to move.
+         * @return the new node, or NONE if the tree is full.
+         */
+        private int expand(int node, int action) {
+            if (node_count == MAX_NODES) {
+                return NONE;
+            }
+            int child = node_count++;
+            node_action[child] = action;
+            node_player[child] = (byte) player;
+            node_child[child] = NONE;
+            node_sibling[child] = node_child[node];
+            node_visits[child] = 0;
+            node_available[child] = 1;
+            node_score[child] = 0;
+            node_child[node] = child;
+            return child;
+        }
+
+        /**
+         * Lists the legal moves of the player to move into legal[].
+         * @return the number of moves.
+         */
+        private int legalMoves() {
+            int count = 0;
+            switch (phase) {
+                case DRAW_PHASE:
+                    legal[count++] = DRAW_CLOSED;
+                    if (pile_size > 0) {
+                        legal[count++] = DRAW_OPEN;
+                    }
+                    break;
+                case DISCARD_PHASE:
+                    for (long cards = hands[player]; cards != 0; cards &= cards - 1) {
+                        int card_id = Long.numberOfTrailingZeros(cards) + 1;
+                        if (TurnMachine.isLegalDiscard(hands[player], card_id, drawn_open)) {
+                            legal[count++] = card_id;
+                        }
+                    }
+                    break;
+                default:
+                    legal[count++] = KNOCK;
+                    legal[count++] = CONTINUE;
+                    break;
+            }
+            return count;
+        }
+
+        /**
+         * Plays a move of the player to move.
+         * @return NOT_OVER, or the score if the game ended: 2 if player 0 won, 1 for a draw, 0 if it lost.
+         */
+        private int apply(int action) {
+            switch (phase) {
+                case DRAW_PHASE:
+                    if (action == DRAW_OPEN) {
+                        drawn_open = pile[--pile_size];
+                        hands[player] |= HandMask.bitOf(drawn_open);
+                    }
+                    else {
+                        if (TurnMachine.isStockExhausted(stock_size)) {
+                            return 1;
+                        }
+                        drawn_open = 0;
+                        hands[player] |= HandMask.bitOf(stock[--stock_size]);
+                    }
+                    if (TurnMachine.isBigGin(hands[player])) {
+                        return knock(player);
+                    }
+                    phase = DISCARD_PHASE;
+                    return NOT_OVER;
+                case DISCARD_PHASE:
+                    hands[player] &= ~HandMask.bitOf(action);
+                    pile[pile_size++] = (byte) action;
+                    if (++turns >= MAX_PLAYOUT_TURNS) {
+                        return 1;
+                    }
+                    if (TurnMachine.canKnock(MeldTable.deadwood(hands[player]))) {
+                        phase = KNOCK_PHASE;
+                        return NOT_OVER;
+                    }
+                    return nextPlayer();
+                default:
+                    return action == KNOCK ? knock(player) : nextPlayer();
+            }
+        }
+
+        private int nextPlayer() {
+            player = 1 - player;
+            phase = DRAW_PHASE;
+            drawn_open = 0;
+            return NOT_OVER;
+        }
+
+        /**
+         * Scores a knock with KnockResolver: the knocker loses to an undercut.
+         * @param knocker 0 or 1 for the player who knocks.
+         * @return 2 if player 0 scores, 0 if the opponent does.
+         */
+        private int knock(int knocker) {
+            KnockResult result = resolver.resolve(knocker, hands[knocker], hands[1 - knocker]);
+            return result.getWinner() == 0 ? 2 : 0;
+        }
+
+        /**
+         * Plays the game to the end with the greedy policy for both players:
+         * draw the open card if it lowers the deadwood, drop the card that leaves the least
+         * deadwood, and knock as soon as the rules allow.
+         * @return 2 if player 0 won, 1 for a draw, 0 if it lost.
+         */
+        private int rollout() {
+            int result = NOT_OVER;
+            while (result == NOT_OVER) {
+                switch (phase) {
+                    case DRAW_PHASE:
+                        long hand = hands[player];
+                        boolean open = pile_size > 0 && MeldTable.deadwoodAfterDiscard(
+                                hand | HandMask.bitOf(pile[pile_size - 1])) < MeldTable.deadwood(hand);
+                        result = apply(open ? DRAW_OPEN : DRAW_CLOSED);
+                        break;
+                    case DISCARD_PHASE:
+                        result = apply(greedyDiscard());
+                        break;
+                    default:
+                        result = apply(KNOCK);
+                        break;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the drop of the player to move that leaves the least deadwood, other than the drawn open card.
+         */
+        private int greedyDiscard() {
+            int count = MeldTable.deadwoodOfDiscards(hands[player], discard_ids, discard_deadwoods);
+            int best = -1;
+            for (int i = 0; i < count; i++) {
+                if (discard_ids[i] != drawn_open
+                        && (best < 0 || discard_deadwoods[i] < discard_deadwoods[best])) {
+                    best = i;
+                }
+            }
+            return discard_ids[best];
+        }
+    }
+}
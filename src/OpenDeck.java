@@ -1,13 +1,60 @@
-
 class OpenDeck extends Deck {
+    private long pile_mask;
+
+    /**
+     * Adds a card to the top of the open deck.
+     * @param card The card to be added.
+     */
+    @Override
+    void addCard(Card card) {
+        super.addCard(card);
+        pile_mask |= HandMask.bit(card);
+    }
 
     @Override
-    public String toString() {
-        if (deck.size() > 0) {
-            return "[" + deck.get(deck.size() - 1).toString() + "]";
+    void addCards(byte[] source, int offset, int count) {
+        super.addCards(source, offset, count);
+        for (int i = 0; i < count; i++) {
+            pile_mask |= HandMask.bitOf(source[offset + i]);
         }
-        else {
-            return "[]";
+    }
+
+    /**
+     * Removes and returns the top card of the open deck.
+     * @return the card that is removed.
+     */
+    @Override
+    Card removeLastCard() {
+        Card card = super.removeLastCard();
+        pile_mask &= ~HandMask.bit(card);
+        return card;
+    }
+
+    @Override
+    void reset() {
+        super.reset();
+        pile_mask = 0;
+    }
+
+    /**
+     * Returns every card in the open deck as a hand mask.
+     * @return the mask of the open deck.
+     */
+    long getMask() {
+        return pile_mask;
+    }
+
+    /**
+     * Writes the top card of the open deck, such as "[4C]", into a builder.
+     * @param builder The builder to append to.
+     * @return the builder.
+     */
+    @Override
+    StringBuilder appendTo(StringBuilder builder) {
+        builder.append('[');
+        if (size > 0) {
+            builder.append(Card.label(idAt(size - 1)));
         }
+        return builder.append(']');
     }
 }
@@ -0,0 +1,76 @@
+/**
+ * Latency histograms for the phases of a game's answer, filled by Game when it is given one
+ * (see Game.setLatency()). All times are in nanoseconds.
+ * Like LatencyHistogram, this is not thread safe: use one per thread and add() them up.
+ */
+final class PhaseLatency {
+    // The phases timed.
+    final static int DRAW = 0;
+    final static int MELD = 1;
+    final static int DEADWOOD = 2;
+    final static int CPU_DECISION = 3;
+    final static int ANSWER = 4;
+
+    private final static String[] NAMES = {"draw", "meld", "deadwood", "CPU decision", "whole answer"};
+
+    private final LatencyHistogram[] histograms;
+
+    PhaseLatency() {
+        histograms = new LatencyHistogram[NAMES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Counts the time of one phase.
+     * @param phase DRAW, MELD, DEADWOOD, CPU_DECISION or ANSWER.
+     * @param nanos The time it took.
+     */
+    void record(int phase, long nanos) {
+        histograms[phase].record(nanos);
+    }
+
+    /**
+     * Returns the histogram of one phase.
+     * @param phase DRAW, MELD, DEADWOOD, CPU_DECISION or ANSWER.
+     * @return the histogram.
+     */
+    LatencyHistogram get(int phase) {
+        return histograms[phase];
+    }
+
+    /**
+     * Adds the counts of another one to this one.
+     * @param other The latencies to add; they are not changed.
+     */
+    void add(PhaseLatency other) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].add(other.histograms[i]);
+        }
+    }
+
+    void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Writes one line per phase, with its count and percentiles in microseconds.
+     * @param builder The builder to append to.
+     * @return the builder.
+     */
+    StringBuilder appendTo(StringBuilder builder) {
+        for (int i = 0; i < histograms.length; i++) {
+            builder.append(String.format("%-13s ", NAMES[i]));
+            histograms[i].appendTo(builder, 1000).append('\n');
+        }
+        return builder;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+}
@@ -1,39 +1,142 @@
-import java.util.Collections;
-import java.util.List;
-
 class PlayerHand extends Deck{
-    private int marker;
+    // Never a hand mask (it has the high bits set), so no hand matches it.
+    private final static long NO_LAYOUT = -1;
+
+    private long hand_mask;
+    private byte[] collate_by_index;
+    private MeldSolver solver;
+    private DiscardRanking discard_ranking;
     private int deadwood;
+    private long deadwood_mask;
+
+    // The hand the deck order and collate marks were laid out for by meld(), or NO_LAYOUT.
+    private long layout_mask;
+    private long layout_discard;
     private int collate_seq_grp_value;
-    private final int default_marker = 13;
 
     /**
-     * Constructs the player's hand to an array list.
-     * The marker (for sequences and groups) is set to 0.
+     * Constructs the player's hand as an empty deck.
+     * The hand mask is empty.
+     * No card is marked as part of a meld.
      * The deadwood is set to 0 (because there is no cards).
+     * The cached deadwood and the layout both belong to the empty hand.
      */
     PlayerHand() {
         super();
-        marker = 1;
+        hand_mask = 0;
+        collate_by_index = new byte[52];
+        solver = new MeldSolver();
+        discard_ranking = new DiscardRanking();
         deadwood = 0;
+        deadwood_mask = 0;
+        layout_mask = 0;
+        layout_discard = 0;
         collate_seq_grp_value = 0;
     }
 
     /**
      * Calculates and returns the deadwood of the current hand.
      * The deadwood is the sum of the weights of the cards
+     * that are not in a meld, leaving out the discard of an 11-card hand.
+     * This does not need meld(): it is read from MeldTable, or from the installed
+     * DeadwoodStore for hands of its size, and only when the hand changed since the last call.
      * @return an integer >= 0
      */
     int calculateDeadwood () {
-        deadwood = 0;
-        int start = getUnmarkedCardIndex();
+        if (deadwood_mask != hand_mask) {
+            deadwood = deadwoodOf(hand_mask);
+            deadwood_mask = hand_mask;
+        }
+        return deadwood;
+    }
+
+    /**
+     * Looks up the deadwood of a hand in the installed DeadwoodStore if it holds hands
+     * of its size, else in MeldTable. Every deadwood of the class is read here, so a hand
+     * is scored the same whichever method asks.
+     * @param mask The hand mask.
+     * @return the deadwood, leaving out the discard of an 11-card hand.
+     */
+    private static int deadwoodOf(long mask) {
+        DeadwoodStore store = DeadwoodStore.getInstalled();
+        return store != null && Long.bitCount(mask) == store.getCards() ? store.lookup(mask)
+                : MeldTable.handDeadwood(mask);
+    }
+
+    /**
+     * Returns the deadwood the hand would have with one more card, without changing the hand.
+     * @param card A card that is not in the hand.
+     * @return the deadwood, as calculateDeadwood() would return after addCard(card).
+     */
+    int peekDeadwoodWith(Card card) {
+        return deadwoodOf(hand_mask | HandMask.bit(card));
+    }
 
-        if (start != -1) {
-            for (int i = start; i < 10; i++) {
-                deadwood += deck.get(i).getWeight();
+    /**
+     * Returns the deadwood the hand would have without one of its cards, without changing the hand.
+     * @param card A card in the hand.
+     * @return the deadwood, as calculateDeadwood() would return after removeCardFromHand(card).
+     */
+    int peekDeadwoodWithout(Card card) {
+        return deadwoodOf(hand_mask & ~HandMask.bit(card));
+    }
+
+    /**
+     * Adds up the deadwood from the layout left by meld(), the way the hand is shown:
+     * the weights of the unmarked cards in the first 10 positions.
+     * Unlike calculateDeadwood(), this checks the melds meld() actually chose.
+     * @return the deadwood of the layout, or -1 if a marked group is not a valid meld.
+     */
+    int layoutDeadwood() {
+        int sum = 0;
+        int collator = 0;
+        long group = 0;
+
+        for (int i = 0; i <= size; i++) {
+            int card_id = i < size ? idAt(i) : 0;
+            int card_collator = i < size ? collate_by_index[card_id - 1] : 0;
+
+            if (card_collator != collator) {
+                if (collator != 0 && !HandMask.isMeld(group)) {
+                    return -1;
+                }
+                collator = card_collator;
+                group = 0;
+            }
+            if (i == size) {
+                break;
+            }
+
+            if (card_collator != 0) {
+                group |= HandMask.bitOf(card_id);
+            }
+            else if (i < 10) {
+                sum += Card.of(card_id).getWeight();
             }
         }
-        return deadwood;
+        return sum;
+    }
+
+    /**
+     * Ranks every card of the hand as the discard, best first, with the deadwood left after it.
+     * The ranking is reused by the next call, so this does not allocate.
+     * @return the ranking of the discards.
+     */
+    DiscardRanking bestDiscard() {
+        discard_ranking.rank(hand_mask);
+        return discard_ranking;
+    }
+
+    /**
+     * Returns the card in the hand with the given ID.
+     * @param card_id The card ID.
+     * @return the card, or null if it is not in the hand.
+     */
+    Card getCard(int card_id) {
+        if ((hand_mask & HandMask.bitOf(card_id)) == 0) {
+            return null;
+        }
+        return Card.of(card_id);
     }
 
     /**
@@ -41,325 +144,303 @@ class PlayerHand extends Deck{
      * sequences are to the far left,
      * groups are in the middle, and
      * deadwood is to the right.
+     * The melds are the ones with the least deadwood (see MeldSolver).
+     * An 11-card hand keeps its best discard as the last card.
+     * Nothing is done if the hand is already laid out.
      */
     void meld() {
-        int start;
+        if (layout_mask == hand_mask) {
+            return;
+        }
+
+        int discards = size > 10 ? 1 : 0;
+        solver.solve(hand_mask, discards);
 
         // Reset values and start from fresh.
         collate_seq_grp_value = 0;
-        marker = 1;
-        for (Card card : deck) {
-            card.setSeqGrp(default_marker);
-            card.setCollateSeqGrp(0);
-        }
-
-        // Find and mark sequence.
-        sortByCardID();
-        findSequence();
-        sortBySeqGrpMarker();
+        super.reset();
 
-        // Find and mark group
-        start = getUnmarkedCardIndex();
-        if (start >= 0) {
-            List<Card> sublist = sortByFaceValue(start, length());
-            findGroup(sublist);
+        long unmarked = hand_mask & ~solver.getDiscard();
 
-            int index = start;
-            for (Card card : sublist) {
-                setCard(card, index++);
+        // Sequences first, then groups.
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < solver.getMeldCount(); i++) {
+                long meld = solver.getMeld(i);
+                if (isSequenceMask(meld) == (pass == 0)) {
+                    markMeld(meld);
+                    unmarked &= ~meld;
+                }
             }
         }
-        sortBySeqGrpMarker();
 
-        //Sort the deadwood cards
-        start = getUnmarkedCardIndex();
-
-        if (start >= 0) {
-            List<Card> sublist = sortByFaceValue(start, length());
-
-            int index = start;
-            for (Card card : sublist) {
-                setCard(card, index++);
+        // Deadwood sorted by face value.
+        for (int face_value = Card.ACE; face_value <= Card.KING; face_value++) {
+            long cards = unmarked & HandMask.rank(face_value);
+            while (cards != 0) {
+                addUnmarked(Long.numberOfTrailingZeros(cards));
+                cards &= cards - 1;
             }
         }
+
+        if (solver.getDiscard() != 0) {
+            addUnmarked(Long.numberOfTrailingZeros(solver.getDiscard()));
+        }
+
+        layout_mask = hand_mask;
+        layout_discard = solver.getDiscard();
+        deadwood = solver.getDeadwood();
+        deadwood_mask = hand_mask;
     }
 
     /**
-     * Sorts the entire hand by the cardID.
+     * Returns the number of melds of the layout; call meld() first.
+     * @return the number of melds.
      */
-    private void sortByCardID() {
-        Collections.sort(deck, (Card c1, Card c2)
-                -> c1.getCardID() < c2.getCardID() ? -1 : c1.getCardID() == c2.getCardID() ? 0 : 1);
+    int getMeldCount() {
+        return solver.getMeldCount();
     }
 
     /**
-     * Sorts the specified section of the hand.
-     * @param start The index of the first card to be sorted
-     * @param end The index of the last card to be sorted
-     * @return A sublist with all the cards inside it sorted.
+     * Returns one meld of the layout; call meld() first.
+     * @param i The index of the meld, below getMeldCount().
+     * @return the cards of the meld.
      */
-    private List<Card> sortByFaceValue(int start, int end) {
-        List<Card> sub_deck = deck.subList(start, end);
-
-        Collections.sort(sub_deck, (Card c1, Card c2)
-                -> c1.getFaceValue() < c2.getFaceValue() ? -1 : c1.getFaceValue() == c2.getFaceValue() ? 0 : 1);
-        return sub_deck;
+    long getMeld(int i) {
+        return solver.getMeld(i);
     }
 
     /**
-     * Sorts the entire hand by the marker.
+     * Tests if a meld is a sequence: all of its cards are in one suit.
+     * @param meld The cards of the meld.
+     * @return true if the meld is a sequence, false if it is a group.
      */
-    private void sortBySeqGrpMarker() {
-        Collections.sort(deck, (Card c1, Card c2)
-                -> c1.getSeqGrp() < c2.getSeqGrp() ? -1 : c1.getSeqGrp() == c2.getSeqGrp() ? 0 : 1);
+    private boolean isSequenceMask(long meld) {
+        int suit = Long.numberOfTrailingZeros(meld) / 13;
+        return (meld & ~HandMask.suit(suit)) == 0;
     }
 
     /**
-     * Find and mark the sequences in the hand. A sequence length can be minimum 3 cards, and maximum the hand's size.
+     * Appends the cards of a meld to the hand in card ID order.
+     * Also marks the collator (for use in toString()).
+     * @param meld The cards of the meld.
      */
-    private void findSequence() {
-        int start;
-        int end;
-        boolean sequence;
-
-        start = 0;
-        end = start + 2;
-        sequence = false;
-
-        while (end < deck.size()) {
-            if (isSequence(start, end)) {
-                // Bound check before increment
-                if (end >= deck.size() - 1) {
-                    markSequence(start, end);
-                    end++;
-                    continue;
-                }
-                else {
-                    end++;
-                }
-                sequence = true;
-                continue;
-            }
-            else {
-                if (sequence) {
-                    markSequence(start, end - 1);
-                    sequence = false;
-                }
-                else {
-                    start++;
-                    end = start + 2;
-                    continue;
-                }
-            }
-            start = end;
-            end = start + 2;
+    private void markMeld(long meld) {
+        collate_seq_grp_value++;
+        while (meld != 0) {
+            int index = Long.numberOfTrailingZeros(meld);
+            collate_by_index[index] = (byte) collate_seq_grp_value;
+            super.addCard(Card.of(index + 1));
+            meld &= meld - 1;
         }
     }
 
     /**
-     * This goes through the range given and blindly marks the cards as a sequence.
-     * Along with this, the collator will also mark cards (for use in the toString()).
-     * @param start The start index of the range.
-     * @param end The end index of the range. This must be greater than start.
+     * Appends a card to the hand as deadwood.
+     * @param index The bit index of the card.
      */
-    private void markSequence(int start, int end) {
-        if (end >= deck.size() || start > end) {
-            return;
-        }
-
-        deck.get(start).setCollateSeqGrp(collate_seq_grp_value++);
-        for (int i = start; i <= end; i++) {
-            deck.get(i).setSeqGrp(marker);
-            deck.get(i).setCollateSeqGrp(collate_seq_grp_value);
-            marker++;
-        }
-
+    private void addUnmarked(int index) {
+        collate_by_index[index] = 0;
+        super.addCard(Card.of(index + 1));
     }
 
     /**
-     * Test if the cards in the range provided is a sequence.
-     * @param start The start index of the range.
-     * @param end The end index of the range. end must be at least 2 more than start.
-     * @return true if the cards in the range is a sequence. false if otherwise.
+     * Adds a card to the hand and sets its bit in the hand mask.
+     * If a laid out 10-card hand gets a card that is its own best discard,
+     * the melds do not change: the card stays last and the layout is kept.
+     * Any other card drops the layout, even if the hand goes back to the mask it was laid out for.
+     * @param card The card to be added.
      */
-    private boolean isSequence(int start, int end) {
-        // Return false, collator few cards for a sequence.
-        if (end - start < 2 || end >= deck.size()) {
-            return false;
-        }
-
-        // Get the top card: every card will be compared to this.
-        Card top_card = deck.get(start);
+    @Override
+    void addCard(Card card) {
+        boolean laid_out = layout_mask == hand_mask && size == 10;
+        int old_deadwood = laid_out ? calculateDeadwood() : 0;
 
-        for (int i = start+1; i <= end; i++) {
-            Card current_card = deck.get(i);
+        super.addCard(card);
+        hand_mask |= HandMask.bit(card);
+        collate_by_index[card.getCardID() - 1] = 0;
 
-            // Check for suit, or face value
-            if (top_card.getSuit() != current_card.getSuit() || top_card.getFaceValue() != current_card.getFaceValue() - i + start) {
-                return false;
-            }
+        if (laid_out && calculateDeadwood() == old_deadwood) {
+            layout_mask = hand_mask;
+            layout_discard = HandMask.bit(card);
+        }
+        else {
+            layout_mask = NO_LAYOUT;
         }
-
-        // The cards ranging from start to end is a sequence
-        return true;
     }
 
     /**
-     * Finds the group in a sublist of cards.
-     * @param sublist The sublist of cards to look at.
+     * Adds a block of dealt cards to the hand and sets their bits in the hand mask.
+     * @param source The array holding the card IDs.
+     * @param offset The index of the first card ID in source.
+     * @param count The number of card IDs to add.
      */
-    private void findGroup(List<Card> sublist) {
-        int start = 0;
-        int end = start + 2;
-
-        // Check size because a group must be greater than 2 cards.
-        if (sublist.size() <= 2) {
-            return;
+    @Override
+    void addCards(byte[] source, int offset, int count) {
+        super.addCards(source, offset, count);
+        for (int i = 0; i < count; i++) {
+            int card_id = source[offset + i];
+            hand_mask |= HandMask.bitOf(card_id);
+            collate_by_index[card_id - 1] = 0;
         }
-
-        while (end < sublist.size()) {
-            // Check group for 3 cards
-            if (isGroup(sublist, start, end)) {
-                // If true, then check 4 cards
-                if (isGroup(sublist, start, end+1)){
-                    // If both are true, then mark 4 cards
-                    markGroup(sublist, start, end+1);
-                }
-                else {
-                    // If outer only is true, then mark 3 cards
-                    markGroup(sublist, start, end);
-                }
-            }
-            else {
-                // If it is not a group, keep looking.
-                start++;
-                end = start + 2;
-                continue;
-            }
-            // Set start and end to next 3 cards.
-            start = end + 1;
-            end = start + 2;
+        if (count != 0) {
+            layout_mask = NO_LAYOUT;
         }
     }
 
     /**
-     * Marks the cards in a range of the sublist as a group.
-     * Also marks the collator (for use in toString()).
-     * @param sublist The sublist with cards to be processed.
-     * @param start The start index of the sublist
-     * @param end The end index of the sublist
+     * Empties the hand, so it can be reused for another game.
      */
-    private void markGroup(List<Card> sublist, int start, int end) {
-        if (end >= sublist.size()) {
-            return;
-        }
-
-        sublist.get(start).setCollateSeqGrp(collate_seq_grp_value++);
-        for (int i = start; i <= end; i++) {
-            sublist.get(i).setSeqGrp(marker);
-            sublist.get(i).setCollateSeqGrp(collate_seq_grp_value);
-            marker++;
-        }
+    @Override
+    void reset() {
+        super.reset();
+        hand_mask = 0;
+        deadwood = 0;
+        deadwood_mask = 0;
+        layout_mask = 0;
+        layout_discard = 0;
+        collate_seq_grp_value = 0;
     }
 
     /**
-     * Determines if the cards in the specified range of the sublist is a group.
-     * @param sublist The sublist of cards to be processed
-     * @param start The index of the first card to be processed
-     * @param end The index of the last card to be processed. end-start must be > 2 & < 3
-     * @return true if the cards in the range is a group, false if otherwise.
+     * Removed a certain card from the hand
+     * @param card The Card to be removed from the hand.
      */
-    private boolean isGroup(List<Card> sublist, int start, int end) {
-        // Return false, too few cards for a group.
-        if (end - start < 2 || end - start > 3 || end >= sublist.size()) {
-
-            return false;
-        }
-
-        // Get the top card: every card will be compared to this.
-        Card top_card = sublist.get(start);
-        for (int i = start + 1; i <= end; i++) {
-            Card current_card = sublist.get(i);
-            if (top_card.getFaceValue() != current_card.getFaceValue()) {
-                return false;
+    void removeCardFromHand (Card card) {
+        for (int i = 0; i < size; i++) {
+            if (idAt(i) == card.getCardID()) {
+                removeAt(i);
+                cardRemoved(card);
+                return;
             }
         }
+    }
+
+    @Override
+    Card removeFirstCard() {
+        Card card = super.removeFirstCard();
+        cardRemoved(card);
+        return card;
+    }
 
-        // The cards in range start to end is a group.
-        return true;
+    @Override
+    Card removeLastCard() {
+        Card card = super.removeLastCard();
+        cardRemoved(card);
+        return card;
+    }
+
+    /**
+     * Remove second to last card (10th card).
+     */
+    Card removeSecondToLastCard () {
+        Card card = removeAt(size-2);
+        cardRemoved(card);
+        return card;
     }
 
     /**
-     * Finds and returns the first unmarked card's index.
-     * @return The index of the first unmarked card.
+     * Clears the card's bit from the hand mask.
+     * Dropping the best discard of a laid out hand leaves the melds and the deadwood as they are,
+     * so both are kept instead of being computed again. Dropping any other card drops the layout:
+     * adding the card back gives the same mask, but not the same deck order.
+     * @param card The card that was removed from the deck.
      */
-    private int getUnmarkedCardIndex() {
-        for (int i = 0; i < deck.size(); i++) {
-            if (deck.get(i).getSeqGrp() == default_marker) {
-                return i;
+    private void cardRemoved(Card card) {
+        long bit = HandMask.bit(card);
+        boolean was_discard = layout_mask == hand_mask && layout_discard == bit;
+        boolean deadwood_known = deadwood_mask == hand_mask;
+
+        hand_mask &= ~bit;
+
+        if (was_discard) {
+            layout_mask = hand_mask;
+            layout_discard = 0;
+            if (deadwood_known) {
+                deadwood_mask = hand_mask;
             }
         }
-        return -1; //not found
+        else {
+            layout_mask = NO_LAYOUT;
+        }
     }
 
     /**
-     * Overwrites the card at a specified position in the deck
-     * @param card The card to be inserted in the list.
-     * @param index The index of the deck that the card is set in.
+     * Tests if a card is in the hand.
+     * @param card The card to look for.
+     * @return true if the card is in the hand, false if otherwise.
      */
-    private void setCard(Card card, int index) {
-        deck.set(index, card);
+    boolean contains(Card card) {
+        return (hand_mask & HandMask.bit(card)) != 0;
     }
 
     /**
-     * Removed a certain card from the hand
-     * @param card The Card to be removed from the hand.
+     * Returns the hand as a bitmask: bit (card ID - 1) is set for every card in the hand.
+     * @return the hand mask.
      */
-    void removeCardFromHand (Card card) {
-        deck.remove(card);
+    long getMask() {
+        return hand_mask;
     }
 
     /**
-     * Remove second to last card (10th card).
+     * Returns the cards of one suit in the hand.
+     * @param suit The suit to keep.
+     * @return the hand mask restricted to the suit.
      */
-    Card removeSecondToLastCard () {
-        return deck.remove(deck.size()-2);
+    long suitMask(int suit) {
+        return hand_mask & HandMask.suit(suit);
+    }
+
+    /**
+     * Returns the cards of one face value in the hand.
+     * @param face_value The face value to keep.
+     * @return the hand mask restricted to the face value.
+     */
+    long rankMask(int face_value) {
+        return hand_mask & HandMask.rank(face_value);
     }
 
+    /**
+     * Writes the hand into a builder, with each meld in parentheses,
+     * such as "[(5S 6S 7S) (8H 8C 8D) AH 2H 5H 6H]".
+     * @param builder The builder to append to.
+     * @return the builder.
+     */
     @Override
-    public String toString() {
-        String string = "[";
+    StringBuilder appendTo(StringBuilder builder) {
+        builder.append('[');
 
         int collator = 0;
 
-        for (int i = 0; i < deck.size(); i++) {
-            Card card = deck.get(i);
+        for (int i = 0; i < size; i++) {
+            int card_id = idAt(i);
+            int card_collator = collate_by_index[card_id - 1];
 
-            if (card.getCollateSeqGrp() != 0 && collator != card.getCollateSeqGrp()) {
-                collator = card.getCollateSeqGrp();
-                string += "(";
+            if (card_collator != 0 && collator != card_collator) {
+                collator = card_collator;
+                builder.append('(');
             }
 
-            if (card.getCollateSeqGrp() == 0) {
+            if (card_collator == 0) {
                 collator = 0;
             }
 
-            string += card;
+            builder.append(Card.label(card_id));
 
-            if (i < deck.size()-1 && deck.get(i+1).getCollateSeqGrp() != collator) {
+            if (i < size-1 && collate_by_index[idAt(i+1) - 1] != collator) {
                 if (collator > 0) {
-                    string += ") ";
+                    builder.append(") ");
                 }
             }
             else {
-                if (i != deck.size() -1) {
-                    string += " ";
+                if (i != size -1) {
+                    builder.append(' ');
+                }
+                else if (collator > 0) {
+                    builder.append(')');
                 }
             }
         }
 
-        string += "]";
-
-        return string;
+        return builder.append(']');
     }
 }
@@ -0,0 +1,139 @@
+/**
+ * Elo ratings of players from the results of their matches, with confidence intervals.
+ *
+ * The ratings are the maximum-likelihood fit of the Bradley-Terry model, in which player i beats
+ * player j with probability 1 / (1 + 10^((elo_j - elo_i) / 400)). Unlike updating Elo after each
+ * match, the fit does not depend on the order of the results, so matches finishing in any order
+ * on any number of threads give the same ratings. Every player also gets one virtual draw against
+ * a player rated 0, which keeps the ratings finite for a player who won or lost every match.
+ *
+ * The interval of a rating comes from the Fisher information of that rating alone, as if the
+ * others were exact; it narrows with the square root of the number of matches.
+ * Not thread safe.
+ */
+final class Ratings {
+    private final static double ELO_PER_NATURAL = 400 / Math.log(10);
+    private final static int MAX_ITERATIONS = 10000;
+    private final static double TOLERANCE = 1e-9;
+
+    private final int players;
+
+    // wins[i][j]: the number of matches i won against j.
+    private final int[][] wins;
+    private final double[] strengths;
+    private final double[] elos;
+    private final double[] errors;
+    private boolean fitted;
+
+    /**
+     * Initializes the ratings with no results.
+     * @param players The number of players.
+     */
+    Ratings(int players) {
+        this.players = players;
+        wins = new int[players][players];
+        strengths = new double[players];
+        elos = new double[players];
+        errors = new double[players];
+        fitted = false;
+    }
+
+    /**
+     * Counts the result of one match.
+     * @param winner The player who won.
+     * @param loser The player who lost.
+     */
+    void add(int winner, int loser) {
+        wins[winner][loser]++;
+        fitted = false;
+    }
+
+    /**
+     * Returns the number of matches one player won against another.
+     * @param player The player.
+     * @param opponent The opponent.
+     * @return the number of wins.
+     */
+    int getWins(int player, int opponent) {
+        return wins[player][opponent];
+    }
+
+    /**
+     * Returns a player's rating, with the average player at 0.
+     * @param player The player.
+     * @return the Elo rating.
+     */
+    double getElo(int player) {
+        fit();
+        return elos[player];
+    }
+
+    /**
+     * Returns the half-width of a player's confidence interval.
+     * @param player The player.
+     * @param z The number of standard errors, such as 1.96 for 95%.
+     * @return the rating is getElo() plus or minus this, in Elo.
+     */
+    double getInterval(int player, double z) {
+        fit();
+        return z * errors[player];
+    }
+
+    /**
+     * Fits the ratings with Hunter's MM algorithm, if a result was added since the last fit.
+     * Each step sets a player's strength to its wins over the sum of its games weighted by
+     * 1 / (its strength + the opponent's), which converges to the maximum-likelihood fit.
+     */
+    private void fit() {
+        if (fitted) {
+            return;
+        }
+        for (int i = 0; i < players; i++) {
+            strengths[i] = 1;
+        }
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double change = 0;
+            for (int i = 0; i < players; i++) {
+                // The virtual draw against a player of strength 1: half a win in one game.
+                double won = 0.5;
+                double weighted = 1 / (strengths[i] + 1);
+                for (int j = 0; j < players; j++) {
+                    int games = wins[i][j] + wins[j][i];
+                    if (j != i && games != 0) {
+                        won += wins[i][j];
+                        weighted += games / (strengths[i] + strengths[j]);
+                    }
+                }
+                double strength = won / weighted;
+                change = Math.max(change, Math.abs(Math.log(strength / strengths[i])));
+                strengths[i] = strength;
+            }
+            if (change < TOLERANCE) {
+                break;
+            }
+        }
+
+        double mean = 0;
+        for (int i = 0; i < players; i++) {
+            elos[i] = Math.log(strengths[i]) * ELO_PER_NATURAL;
+            mean += elos[i] / players;
+        }
+        for (int i = 0; i < players; i++) {
+            elos[i] -= mean;
+
+            // The information of log(strength i): the sum of games * p * (1 - p) over its opponents.
+            double p = strengths[i] / (strengths[i] + 1);
+            double information = p * (1 - p);
+            for (int j = 0; j < players; j++) {
+                int games = wins[i][j] + wins[j][i];
+                if (j != i && games != 0) {
+                    p = strengths[i] / (strengths[i] + strengths[j]);
+                    information += games * p * (1 - p);
+                }
+            }
+            errors[i] = ELO_PER_NATURAL / Math.sqrt(information);
+        }
+        fitted = true;
+    }
+}
@@ -0,0 +1,186 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+/**
+ * Replays every game of an archive in parallel and scores it again with the current meld logic,
+ * for example after a change to MeldTable, to see which results would change.
+ * Records are read in batches; the games of a batch are replayed on the common fork-join pool
+ * and written out in archive order.
+ */
+class ReplayArchive {
+    // Records replayed together.
+    private final static int BATCH = 1 << 14;
+
+    private final ThreadLocal<GameReplay> replays = ThreadLocal.withInitial(GameReplay::new);
+
+    private final long[] seeds;
+    private final int[] offsets;
+    private byte[] events;
+    private final GameResult[] results;
+    private final String[] errors;
+
+    private long games;
+    private long illegal;
+    private final long[] wins;
+    private long draws;
+    private long invalid_knocks;
+    private long elapsed_nanos;
+
+    ReplayArchive() {
+        seeds = new long[BATCH];
+        offsets = new int[BATCH + 1];
+        events = new byte[BATCH * 32];
+        results = new GameResult[BATCH];
+        errors = new String[BATCH];
+        wins = new long[2];
+    }
+
+    /**
+     * Replays every record of an archive.
+     * @param reader The archive, before its first record.
+     * @param out Gets one line per game, or null for the totals only:
+     *            "number seed winner deadwood0 deadwood1 turns points", or "number seed illegal: reason".
+     * @throws IOException if the archive is not in the GameRecord format.
+     */
+    void run(GameRecordReader reader, PrintWriter out) throws IOException {
+        long start = System.nanoTime();
+        int count;
+        do {
+            count = readBatch(reader);
+            IntStream.range(0, count).parallel().forEach(this::replay);
+            writeBatch(count, out);
+        } while (count == BATCH);
+        elapsed_nanos += System.nanoTime() - start;
+    }
+
+    private int readBatch(GameRecordReader reader) throws IOException {
+        int count = 0;
+        offsets[0] = 0;
+        while (count < BATCH && reader.next()) {
+            int length = reader.getEventCount();
+            if (offsets[count] + length > events.length) {
+                byte[] bigger = new byte[Math.max(events.length * 2, offsets[count] + length)];
+                System.arraycopy(events, 0, bigger, 0, offsets[count]);
+                events = bigger;
+            }
+            for (int i = 0; i < length; i++) {
+                events[offsets[count] + i] = reader.getEvent(i);
+            }
+            seeds[count] = reader.getSeed();
+            offsets[count + 1] = offsets[count] + length;
+            count++;
+        }
+        return count;
+    }
+
+    private void replay(int i) {
+        GameReplay replay = replays.get();
+        replay.load(seeds[i], events, offsets[i], offsets[i + 1] - offsets[i]);
+        try {
+            results[i] = replay.result();
+            errors[i] = null;
+        }
+        catch (IllegalStateException e) {
+            results[i] = null;
+            errors[i] = e.getMessage();
+        }
+    }
+
+    private void writeBatch(int count, PrintWriter out) {
+        for (int i = 0; i < count; i++) {
+            GameResult result = results[i];
+            if (result == null) {
+                illegal++;
+                if (out != null) {
+                    out.printf("%d %d illegal: %s%n", games, seeds[i], errors[i]);
+                }
+            }
+            else {
+                int winner = result.getWinner();
+                if (winner == GameResult.NO_WINNER) {
+                    draws++;
+                }
+                else {
+                    wins[winner]++;
+                    if (result.getKnock() == null) {
+                        invalid_knocks++;
+                    }
+                }
+                if (out != null) {
+                    out.printf("%d %d %d %d %d %d %d%n", games, seeds[i], winner,
+                            result.getDeadwood(0), result.getDeadwood(1), result.getTurns(), result.getPoints());
+                }
+            }
+            results[i] = null;
+            games++;
+        }
+    }
+
+    long getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the number of games whose events could not be replayed.
+     * @return the number of illegal records.
+     */
+    long getIllegal() {
+        return illegal;
+    }
+
+    /**
+     * Returns the number of knocks that the current meld logic would not allow,
+     * because the knocker has more than 10 deadwood.
+     * @return the number of invalid knocks.
+     */
+    long getInvalidKnocks() {
+        return invalid_knocks;
+    }
+
+    double getGamesPerSecond() {
+        return elapsed_nanos == 0 ? 0 : games * 1e9 / elapsed_nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games: %d/%d wins, %d draws, %d invalid knocks, %d illegal, %.0f games/s",
+                games, wins[0], wins[1], draws, invalid_knocks, illegal, getGamesPerSecond());
+    }
+
+    /**
+     * Re-scores an archive and prints the totals.
+     * @param args The archive file (".gz" for a compressed one), and optionally a file for the per-game lines.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java ReplayArchive <archive> [results]");
+            return;
+        }
+        Path path = Path.of(args[0]);
+        GameRecordReader reader;
+        if (args[0].endsWith(".gz")) {
+            reader = GameRecordReader.read(Files.newInputStream(path), true);
+        }
+        else {
+            reader = GameRecordReader.map(path);
+        }
+
+        ReplayArchive archive = new ReplayArchive();
+        try (reader) {
+            if (args.length > 1) {
+                try (BufferedWriter file = Files.newBufferedWriter(Path.of(args[1]));
+                     PrintWriter out = new PrintWriter(file)) {
+                    archive.run(reader, out);
+                }
+            }
+            else {
+                archive.run(reader, null);
+            }
+        }
+        System.out.println(archive);
+    }
+}
@@ -0,0 +1,28 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Fisher-Yates shuffle of card ID arrays on a caller-owned random generator.
+ * Any RandomGenerator will do (SplittableRandom, or a xoshiro or LXM generator from
+ * RandomGenerator.of()). Each game (or thread) owns its generator, so shuffles never
+ * contend, and a generator seeded the same way always gives the same order.
+ */
+final class Shuffler {
+    private Shuffler() {
+    }
+
+    /**
+     * Shuffles the first length entries of an array in place.
+     * Every order is equally likely.
+     * @param ids The card IDs.
+     * @param length The number of entries to shuffle.
+     * @param random The generator to draw from.
+     */
+    static void shuffle(byte[] ids, int length, RandomGenerator random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte temp = ids[i];
+            ids[i] = ids[j];
+            ids[j] = temp;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Runs many headless games in parallel on the common fork-join pool and sums up the results.
+ * Each worker thread keeps one GameEngine, with its own strategies from the suppliers, and
+ * resets it for every game, so strategies need not be thread safe and a game allocates no decks.
+ */
+class Simulation {
+    private final long seed;
+    private final ThreadLocal<GameEngine> engines;
+
+    private final LongAdder[] wins;
+    private final LongAdder[] points;
+    private final LongAdder draws;
+    private final LongAdder exhausted;
+    private final LongAdder turns;
+    private long games;
+    private long elapsed_nanos;
+
+    /**
+     * Initializes a simulation between two kinds of strategy.
+     * @param strategy0 Makes the strategy of player 0 (who moves first) for each worker thread.
+     * @param strategy1 Makes the strategy of player 1 for each worker thread.
+     */
+    Simulation(Supplier<Strategy> strategy0, Supplier<Strategy> strategy1) {
+        this(strategy0, strategy1, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Initializes a repeatable simulation: game number i is always dealt from the same seed.
+     * @param strategy0 Makes the strategy of player 0 (who moves first) for each worker thread.
+     * @param strategy1 Makes the strategy of player 1 for each worker thread.
+     * @param seed The seed the game seeds are made from.
+     */
+    Simulation(Supplier<Strategy> strategy0, Supplier<Strategy> strategy1, long seed) {
+        this.seed = seed;
+        engines = ThreadLocal.withInitial(() -> new GameEngine(strategy0.get(), strategy1.get(), 0));
+        wins = new LongAdder[] {new LongAdder(), new LongAdder()};
+        points = new LongAdder[] {new LongAdder(), new LongAdder()};
+        draws = new LongAdder();
+        exhausted = new LongAdder();
+        turns = new LongAdder();
+        games = 0;
+        elapsed_nanos = 0;
+    }
+
+    /**
+     * Plays a number of games across all cores. The totals add up over several calls.
+     * @param count The number of games to play.
+     */
+    void run(int count) {
+        long first = games;
+        long start = System.nanoTime();
+        IntStream.range(0, count).parallel().forEach(i -> record(playOne(first + i)));
+        elapsed_nanos += System.nanoTime() - start;
+        games += count;
+    }
+
+    /**
+     * Plays one game on the calling thread's engine.
+     * @param number The game number, which picks its seed.
+     * @return the result of the game.
+     */
+    GameResult playOne(long number) {
+        GameEngine engine = engines.get();
+        engine.reset(gameSeed(number));
+        return engine.play();
+    }
+
+    /**
+     * Returns the seed of a game number.
+     * @param number The game number.
+     * @return the seed of the game's closed deck.
+     */
+    long gameSeed(long number) {
+        return seed + number * 0x9E3779B97F4A7C15L;
+    }
+
+    private void record(GameResult result) {
+        if (result.getWinner() == GameResult.NO_WINNER) {
+            draws.increment();
+        }
+        else {
+            wins[result.getWinner()].increment();
+            points[result.getWinner()].add(result.getPoints());
+        }
+        if (result.isStockExhausted()) {
+            exhausted.increment();
+        }
+        turns.add(result.getTurns());
+    }
+
+    long getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the number of games a player won.
+     * @param player 0 or 1.
+     * @return the number of wins.
+     */
+    long getWins(int player) {
+        return wins[player].sum();
+    }
+
+    /**
+     * Returns the points a player scored over all its wins (see KnockResolver).
+     * @param player 0 or 1.
+     * @return the points.
+     */
+    long getPoints(int player) {
+        return points[player].sum();
+    }
+
+    long getDraws() {
+        return draws.sum();
+    }
+
+    long getStockExhausted() {
+        return exhausted.sum();
+    }
+
+    double getAverageTurns() {
+        return games == 0 ? 0 : (double) turns.sum() / games;
+    }
+
+    double getGamesPerSecond() {
+        return elapsed_nanos == 0 ? 0 : games * 1e9 / elapsed_nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games: %d/%d wins, %d/%d points, %d draws (%d stock exhausted), %.1f turns/game, "
+                        + "%.0f games/s", games, getWins(0), getWins(1), getPoints(0), getPoints(1), getDraws(),
+                getStockExhausted(), getAverageTurns(), getGamesPerSecond());
+    }
+
+    /**
+     * Plays greedy CPU against greedy CPU and prints the totals.
+     * @param args The number of games (default 100000).
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Simulation simulation = new Simulation(GreedyStrategy::new, GreedyStrategy::new);
+
+        // Warm up the JIT before measuring.
+        simulation.run(Math.min(count, 10000));
+        simulation = new Simulation(GreedyStrategy::new, GreedyStrategy::new);
+        simulation.run(count);
+        System.out.println(simulation);
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * The decisions a player makes in a turn: where to draw, what to drop, and whether to knock.
+ * A strategy only sees a GameState snapshot; the game applies the decisions itself.
+ * A strategy is used by one game at a time, so it may keep state between turns; a strategy
+ * reused for several hands (such as in a Match) is told when a new hand is dealt.
+ */
+interface Strategy {
+    /**
+     * Forgets what the strategy learned in the last hand. Called before every hand is dealt.
+     */
+    default void newHand() {
+    }
+
+    /**
+     * Decides where to draw from.
+     * @param state The snapshot, with the player's 10 cards.
+     * @return true to draw the open card, false to draw from the closed deck.
+     */
+    boolean drawFromOpenDeck(GameState state);
+
+    /**
+     * Picks the card to drop to the open deck.
+     * It may not be state.getDrawnOpenCardID().
+     * @param state The snapshot, with the player's 11 cards.
+     * @return the card ID of a card in the hand.
+     */
+    int chooseDiscard(GameState state);
+
+    /**
+     * Decides whether to knock. Only asked when the deadwood is 10 or less.
+     * @param state The snapshot, with the player's 10 cards after the drop.
+     * @return true to knock.
+     */
+    boolean knock(GameState state);
+}
@@ -0,0 +1,241 @@
+/**
+ * Maps hands and game states to a canonical suit order, and ranks canonical hands densely.
+ *
+ * No suit ranks above another, so two hands that differ by a permutation of the suits have the
+ * same melds and deadwood; likewise for whole game states. The canonical form orders the suits
+ * by their 13-bit patterns (see HandMask.suitPattern), from the one with the most cards to the
+ * one with the fewest, ties broken by the higher pattern. Every permutation of a hand has the
+ * same canonical form, so a cache keyed by it holds up to 24 times fewer entries.
+ *
+ * rank() numbers the canonical hands of each size from 0 with no gaps, so a table can be a
+ * plain array of count(cards) entries. The suits are grouped by their number of cards: the
+ * composition (such as 4-3-2-1 for 10 cards) picks a block of the index, and within it each
+ * group of suits with the same number of cards is a multiset of patterns, ranked with the
+ * combinatorial number system. A rank is the sort plus a few table reads, with no allocation.
+ */
+final class SuitCanonicalizer {
+    // KEY[pattern] = c << 11 | the rank of the pattern among the C(13, c) patterns of c cards,
+    // by value; the suits sort by it. PATTERN[key] is the pattern back.
+    private final static short[] KEY = new short[8192];
+    private final static short[] PATTERN = new short[14 << 11];
+
+    // PATTERN_COUNT[c] = C(13, c): the number of patterns with c cards.
+    private final static int[] PATTERN_COUNT = new int[14];
+
+    // BINOMIAL[n][k] = C(n, k) for k up to 4, enough for multisets of up to 4 of the C(13, 6) = 1716 patterns.
+    private final static long[][] BINOMIAL = new long[1716 + 4][5];
+
+    // MULTISET[pattern rank * 4 + t - 1] = C(pattern rank + t - 1, t): what a pattern adds
+    // to the rank of a multiset as its t-th lowest member.
+    private final static long[] MULTISET = new long[1716 * 4];
+
+    // COMPOSITION[code(c0, c1, c2, c3)]: the number of a composition c0 >= c1 >= c2 >= c3.
+    private final static short[] COMPOSITION = new short[14 * 14 * 14 * 14];
+
+    // OFFSET[composition]: the first rank of the hands with that composition.
+    private final static long[] OFFSET = new long[2380];
+
+    // WEIGHT[composition * 4 + suit]: the place value of the multiset holding the suit,
+    // and POSITION[composition * 4 + suit]: where the suit is in it, 0 for the lowest.
+    private final static long[] WEIGHT = new long[2380 * 4];
+    private final static byte[] POSITION = new byte[2380 * 4];
+
+    // COUNT[cards]: the number of canonical hands of that many cards.
+    private final static long[] COUNT = new long[53];
+
+    static {
+        for (int pattern = 0; pattern < 8192; pattern++) {
+            int c = Integer.bitCount(pattern);
+            KEY[pattern] = (short) (c << 11 | PATTERN_COUNT[c]++);
+            PATTERN[KEY[pattern]] = (short) pattern;
+        }
+        for (int n = 0; n < BINOMIAL.length; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= 4 && k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k <= n - 1 ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+        for (int rank = 0; rank < 1716; rank++) {
+            for (int t = 1; t <= 4; t++) {
+                MULTISET[rank * 4 + t - 1] = BINOMIAL[rank + t - 1][t];
+            }
+        }
+
+        int composition = 0;
+        for (int c0 = 0; c0 <= 13; c0++) {
+            for (int c1 = 0; c1 <= c0; c1++) {
+                for (int c2 = 0; c2 <= c1; c2++) {
+                    for (int c3 = 0; c3 <= c2; c3++) {
+                        int cards = c0 + c1 + c2 + c3;
+                        COMPOSITION[code(c0, c1, c2, c3)] = (short) composition;
+                        OFFSET[composition] = COUNT[cards];
+                        COUNT[cards] += place(composition, new int[] {c0, c1, c2, c3});
+                        composition++;
+                    }
+                }
+            }
+        }
+    }
+
+    private SuitCanonicalizer() {
+    }
+
+    /**
+     * Returns the canonical form of a hand: its suit patterns sorted by number of cards, then by value.
+     * @param hand The hand mask.
+     * @return the canonical hand mask.
+     */
+    static long canonical(long hand) {
+        long keys = sortedKeys(hand);
+        return PATTERN[(int) keys & 0x7FFF]
+                | (long) PATTERN[(int) (keys >>> 15) & 0x7FFF] << 13
+                | (long) PATTERN[(int) (keys >>> 30) & 0x7FFF] << 26
+                | (long) PATTERN[(int) (keys >>> 45) & 0x7FFF] << 39;
+    }
+
+    /**
+     * Returns the dense rank of a hand's canonical form among the canonical hands of its size.
+     * Hands that differ by a permutation of the suits have the same rank.
+     * @param hand The hand mask.
+     * @return the rank, from 0 to count(cards) - 1.
+     */
+    static long rank(long hand) {
+        long keys = sortedKeys(hand);
+        int k0 = (int) keys & 0x7FFF;
+        int k1 = (int) (keys >>> 15) & 0x7FFF;
+        int k2 = (int) (keys >>> 30) & 0x7FFF;
+        int k3 = (int) (keys >>> 45) & 0x7FFF;
+        int composition = COMPOSITION[code(k0 >> 11, k1 >> 11, k2 >> 11, k3 >> 11)] * 4;
+
+        return OFFSET[composition >> 2]
+                + WEIGHT[composition] * MULTISET[(k0 & 0x7FF) * 4 + POSITION[composition]]
+                + WEIGHT[composition + 1] * MULTISET[(k1 & 0x7FF) * 4 + POSITION[composition + 1]]
+                + WEIGHT[composition + 2] * MULTISET[(k2 & 0x7FF) * 4 + POSITION[composition + 2]]
+                + WEIGHT[composition + 3] * MULTISET[(k3 & 0x7FF) * 4 + POSITION[composition + 3]];
+    }
+
+    /**
+     * Returns the number of canonical hands of a size: the length of a table indexed by rank().
+     * @param cards The number of cards, 0 to 52.
+     * @return the number of canonical hands.
+     */
+    static long count(int cards) {
+        return COUNT[cards];
+    }
+
+    /**
+     * Returns a game state with its suits in the canonical order of the player's hand,
+     * the suits with the same hand pattern ordered by the discard pile, the opponent's
+     * known cards, then the open card and the card drawn from the open deck.
+     * States that differ by a permutation of the suits give equal canonical states.
+     * @param state The state.
+     * @return the state with every mask and card ID moved to the canonical suits.
+     */
+    static GameState canonical(GameState state) {
+        long[] keys = new long[4];
+        for (int suit = 0; suit < 4; suit++) {
+            keys[suit] = (long) KEY[HandMask.suitPattern(state.getHand(), suit)] << 34
+                    | (long) HandMask.suitPattern(state.getDiscardPile(), suit) << 21
+                    | (long) HandMask.suitPattern(state.getOpponentKnown(), suit) << 8
+                    | faceIn(state.getOpenCardID(), suit) << 4
+                    | faceIn(state.getDrawnOpenCardID(), suit);
+        }
+
+        // to_suit[s]: where suit s goes, the highest key first.
+        int[] to_suit = new int[4];
+        for (int suit = 0; suit < 4; suit++) {
+            for (int other = 0; other < 4; other++) {
+                if (keys[other] > keys[suit] || (keys[other] == keys[suit] && other < suit)) {
+                    to_suit[suit]++;
+                }
+            }
+        }
+        return new GameState(permute(state.getHand(), to_suit), permute(state.getDiscardPile(), to_suit),
+                permute(state.getOpponentKnown(), to_suit), permuteID(state.getOpenCardID(), to_suit),
+                permuteID(state.getDrawnOpenCardID(), to_suit), state.getStockSize());
+    }
+
+    /**
+     * Moves the cards of a mask to other suits.
+     * @param mask The hand mask.
+     * @param to_suit The suit each suit goes to.
+     * @return the permuted mask.
+     */
+    static long permute(long mask, int[] to_suit) {
+        long result = 0;
+        for (int suit = 0; suit < 4; suit++) {
+            result |= (long) HandMask.suitPattern(mask, suit) << (to_suit[suit] * 13);
+        }
+        return result;
+    }
+
+    private static int permuteID(int card_id, int[] to_suit) {
+        if (card_id == 0) {
+            return 0;
+        }
+        int index = HandMask.index(card_id);
+        return to_suit[index / 13] * 13 + index % 13 + 1;
+    }
+
+    /**
+     * Returns the face value of a card (1 to 13) if it is in a suit, else 0.
+     */
+    private static long faceIn(int card_id, int suit) {
+        if (card_id == 0 || HandMask.index(card_id) / 13 != suit) {
+            return 0;
+        }
+        return HandMask.index(card_id) % 13 + 1;
+    }
+
+    /**
+     * Returns the KEYs of the four suits of a hand, the highest first, 15 bits each.
+     */
+    private static long sortedKeys(long hand) {
+        int a = KEY[HandMask.suitPattern(hand, 0)];
+        int b = KEY[HandMask.suitPattern(hand, 1)];
+        int c = KEY[HandMask.suitPattern(hand, 2)];
+        int d = KEY[HandMask.suitPattern(hand, 3)];
+
+        // A sorting network of five compare-exchanges, without branches.
+        int high_ab = Math.max(a, b);
+        int low_ab = Math.min(a, b);
+        int high_cd = Math.max(c, d);
+        int low_cd = Math.min(c, d);
+        int middle_high = Math.min(high_ab, high_cd);
+        int middle_low = Math.max(low_ab, low_cd);
+        return Math.max(high_ab, high_cd)
+                | (long) Math.max(middle_high, middle_low) << 15
+                | (long) Math.min(middle_high, middle_low) << 30
+                | (long) Math.min(low_ab, low_cd) << 45;
+    }
+
+    private static int code(int c0, int c1, int c2, int c3) {
+        return ((c0 * 14 + c1) * 14 + c2) * 14 + c3;
+    }
+
+    /**
+     * Fills WEIGHT and POSITION for one composition. From the suit with the fewest cards,
+     * each run of suits with the same number of cards is a multiset, ranked from its lowest
+     * pattern, and the runs are the digits of a mixed-radix number, the last run the lowest.
+     * @param composition The number of the composition.
+     * @param counts The number of cards in each suit, from the most to the fewest.
+     * @return the number of canonical hands with the composition.
+     */
+    private static long place(int composition, int[] counts) {
+        long weight = 1;
+        for (int j = 3; j >= 0; ) {
+            int i = j;
+            while (i > 0 && counts[i - 1] == counts[j]) {
+                i--;
+            }
+            for (int suit = i; suit <= j; suit++) {
+                WEIGHT[composition * 4 + suit] = weight;
+                POSITION[composition * 4 + suit] = (byte) (j - suit);
+            }
+            int m = j - i + 1;
+            weight *= BINOMIAL[PATTERN_COUNT[counts[j]] + m - 1][m];
+            j = i - 1;
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,293 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * An immutable game of the player against the CPU, between two moves (see TurnMachine).
+ * The decks are kept as card IDs in order and the hands as hand masks, so a state is a few
+ * dozen bytes and can be saved with toBytes() at any phase and restored with fromBytes().
+ *
+ * Player 0 is the player and player 1 is the CPU; the player moves first.
+ */
+final class TableState {
+    private final static byte MAGIC_0 = 'T';
+    private final static byte MAGIC_1 = 'S';
+    private final static byte VERSION = 1;
+    private final static TurnPhase[] PHASES = TurnPhase.values();
+
+    private final TurnPhase phase;
+    private final long seed;
+    private final byte[] closed;
+    private final byte[] open;
+    private final long player_hand;
+    private final long computer_hand;
+    private final long player_picked;
+    private final int drawn_open_card_id;
+    private final byte ending;
+    private final int knocker;
+    private final int turns;
+
+    /**
+     * Initializes a state. The arrays are kept, not copied, so they must not be changed afterwards.
+     * @param phase What the game waits for.
+     * @param seed The seed the closed deck was shuffled from.
+     * @param closed The closed deck, bottom card first.
+     * @param open The open deck, bottom card first.
+     * @param player_hand The player's cards.
+     * @param computer_hand The CPU's cards.
+     * @param player_picked Cards the player drew from the open deck and still holds (the CPU saw them).
+     * @param drawn_open_card_id The card the player drew from the open deck this turn (it may not be dropped), 0 if none.
+     * @param ending How the game ended: GameRecord.KNOCK, DRAW_GAME or QUIT, or 0 if it did not.
+     * @param knocker 0 or 1 for the player who knocked, GameResult.NO_WINNER otherwise.
+     * @param turns The number of turns played by both players.
+     */
+    TableState(TurnPhase phase, long seed, byte[] closed, byte[] open, long player_hand, long computer_hand,
+               long player_picked, int drawn_open_card_id, byte ending, int knocker, int turns) {
+        this.phase = phase;
+        this.seed = seed;
+        this.closed = closed;
+        this.open = open;
+        this.player_hand = player_hand;
+        this.computer_hand = computer_hand;
+        this.player_picked = player_picked;
+        this.drawn_open_card_id = drawn_open_card_id;
+        this.ending = ending;
+        this.knocker = knocker;
+        this.turns = turns;
+    }
+
+    /**
+     * Shuffles a closed deck from a seed and deals it as Game and GameEngine do:
+     * 10 cards to the player, 10 to the CPU and one to the open deck.
+     * @param seed The seed of the closed deck.
+     * @return the state waiting for the player's first draw.
+     */
+    static TableState deal(long seed) {
+        ClosedDeck closed_deck = new ClosedDeck(seed);
+        OpenDeck open_deck = new OpenDeck();
+        PlayerHand player = new PlayerHand();
+        PlayerHand computer = new PlayerHand();
+        closed_deck.deal(player, computer, open_deck);
+
+        byte[] closed = new byte[closed_deck.length()];
+        for (int i = 0; i < closed.length; i++) {
+            closed[i] = (byte) closed_deck.idAt(i);
+        }
+        byte[] open = {(byte) open_deck.getLastCard().getCardID()};
+
+        return new TableState(TurnPhase.DRAW, seed, closed, open, player.getMask(), computer.getMask(),
+                0, 0, (byte) 0, GameResult.NO_WINNER, 0);
+    }
+
+    TurnPhase getPhase() {
+        return phase;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of cards in the closed deck.
+     * @return the size of the closed deck.
+     */
+    int getClosedSize() {
+        return closed.length;
+    }
+
+    /**
+     * Returns the top card of the closed deck, the next one drawn.
+     * @return the card ID, or 0 if the closed deck is empty.
+     */
+    int getClosedTopID() {
+        return closed.length == 0 ? 0 : closed[closed.length - 1];
+    }
+
+    /**
+     * Returns the number of cards in the open deck.
+     * @return the size of the open deck.
+     */
+    int getOpenSize() {
+        return open.length;
+    }
+
+    /**
+     * Returns the top card of the open deck.
+     * @return the card ID, or 0 if the open deck is empty.
+     */
+    int getOpenTopID() {
+        return open.length == 0 ? 0 : open[open.length - 1];
+    }
+
+    /**
+     * Returns a card of the open deck.
+     * @param i The position, counted from the bottom, between 0 and getOpenSize() - 1.
+     * @return the card ID.
+     */
+    int getOpenID(int i) {
+        return open[i];
+    }
+
+    /**
+     * Returns every card in the open deck.
+     * @return the mask of the open deck.
+     */
+    long getOpenMask() {
+        long mask = 0;
+        for (byte card_id : open) {
+            mask |= HandMask.bitOf(card_id);
+        }
+        return mask;
+    }
+
+    long getPlayerHand() {
+        return player_hand;
+    }
+
+    long getComputerHand() {
+        return computer_hand;
+    }
+
+    long getPlayerPicked() {
+        return player_picked;
+    }
+
+    int getDrawnOpenCardID() {
+        return drawn_open_card_id;
+    }
+
+    /**
+     * Returns how the game ended.
+     * @return GameRecord.KNOCK, DRAW_GAME or QUIT, or 0 if the game is not over.
+     */
+    byte getEnding() {
+        return ending;
+    }
+
+    /**
+     * Returns the player who knocked. After an undercut the other player scores (see KnockResolver).
+     * @return 0 for the player, 1 for the CPU, GameResult.NO_WINNER if nobody knocked.
+     */
+    int getKnocker() {
+        return knocker;
+    }
+
+    int getTurns() {
+        return turns;
+    }
+
+    /**
+     * Returns the closed deck, bottom card first. The array is shared and must not be changed.
+     */
+    byte[] getClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the open deck, bottom card first. The array is shared and must not be changed.
+     */
+    byte[] getOpen() {
+        return open;
+    }
+
+    /**
+     * Returns the closed deck with its top card drawn.
+     */
+    byte[] closedWithoutTop() {
+        byte[] rest = new byte[closed.length - 1];
+        System.arraycopy(closed, 0, rest, 0, rest.length);
+        return rest;
+    }
+
+    /**
+     * Returns the open deck with its top card drawn.
+     */
+    byte[] openWithoutTop() {
+        byte[] rest = new byte[open.length - 1];
+        System.arraycopy(open, 0, rest, 0, rest.length);
+        return rest;
+    }
+
+    /**
+     * Returns the open deck with a card dropped on top.
+     */
+    byte[] openWith(int card_id) {
+        byte[] pile = new byte[open.length + 1];
+        System.arraycopy(open, 0, pile, 0, open.length);
+        pile[open.length] = (byte) card_id;
+        return pile;
+    }
+
+    /**
+     * Saves the state:
+     *   bytes 0-1   magic "TS"
+     *   byte  2     format version (1)
+     *   byte  3     phase (TurnPhase ordinal)
+     *   bytes 4-11  seed, then the player's hand, the CPU's hand and the player's picks (8 bytes each, big-endian)
+     *   then        the drawn open card, the ending and the knocker (1 byte each),
+     *               the turns (2 bytes), and each deck as its size (1 byte) and its card IDs, bottom first.
+     * @return the bytes.
+     */
+    byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 8 * 4 + 3 + 2 + 2 + closed.length + open.length);
+        buffer.put(MAGIC_0).put(MAGIC_1).put(VERSION).put((byte) phase.ordinal());
+        buffer.putLong(seed).putLong(player_hand).putLong(computer_hand).putLong(player_picked);
+        buffer.put((byte) drawn_open_card_id).put(ending).put((byte) knocker).putShort((short) turns);
+        buffer.put((byte) closed.length).put(closed);
+        buffer.put((byte) open.length).put(open);
+        return buffer.array();
+    }
+
+    /**
+     * Restores a state saved by toBytes().
+     * @param bytes The saved state.
+     * @return the state.
+     * @throws IllegalArgumentException if the bytes are not a saved state,
+     *         or the decks and hands do not hold each of the 52 cards exactly once.
+     */
+    static TableState fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            if (buffer.get() != MAGIC_0 || buffer.get() != MAGIC_1) {
+                throw new IllegalArgumentException("Not a saved game state");
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown game state version " + version);
+            }
+            int phase = buffer.get();
+            if (phase < 0 || phase >= PHASES.length) {
+                throw new IllegalArgumentException("Unknown phase " + phase);
+            }
+            long seed = buffer.getLong();
+            long player_hand = buffer.getLong();
+            long computer_hand = buffer.getLong();
+            long player_picked = buffer.getLong();
+            int drawn_open_card_id = buffer.get();
+            byte ending = buffer.get();
+            int knocker = buffer.get();
+            int turns = buffer.getShort() & 0xFFFF;
+            byte[] closed = new byte[buffer.get() & 0xFF];
+            buffer.get(closed);
+            byte[] open = new byte[buffer.get() & 0xFF];
+            buffer.get(open);
+
+            long cards = player_hand | computer_hand;
+            int count = Long.bitCount(player_hand) + Long.bitCount(computer_hand) + closed.length + open.length;
+            for (byte card_id : closed) {
+                cards |= HandMask.bitOf(card_id);
+            }
+            for (byte card_id : open) {
+                cards |= HandMask.bitOf(card_id);
+            }
+            if (cards != HandMask.FULL_DECK || count != 52) {
+                throw new IllegalArgumentException("The saved decks and hands do not hold the 52 cards");
+            }
+
+            return new TableState(PHASES[phase], seed, closed, open, player_hand, computer_hand,
+                    player_picked, drawn_open_card_id, ending, knocker, turns);
+        }
+        catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated game state");
+        }
+    }
+}
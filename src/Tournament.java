@@ -0,0 +1,423 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A tournament of strategies playing Matches against each other.
+ *
+ * Pairings are round-robin (every entrant plays every other one, each round) or Swiss (each
+ * round pairs entrants with close standings who met the least before). The matches of a round
+ * are independent tasks on a ForkJoinPool, whose idle threads steal queued matches from busy
+ * ones, so long and short matches even out across the cores. Results are taken in the order
+ * they finish, so the standings and the Ratings are updated as the tournament goes, and a
+ * listener can stream them. The tournament can stop as soon as the leader's rating is
+ * ahead of every other entrant's by more than the confidence intervals.
+ *
+ * Every match is dealt from a seed drawn in scheduling order from the tournament's seed, and
+ * each match gets new strategies from the entrants' suppliers, so strategies need not be thread
+ * safe. The ratings do not depend on the order matches finish in.
+ */
+class Tournament {
+    // Pairings.
+    final static int ROUND_ROBIN = 0;
+    final static int SWISS = 1;
+
+    // The leader is not decided before every entrant played this many matches.
+    final static int MIN_MATCHES_TO_DECIDE = 30;
+
+    private final int pairing;
+    private final int rounds;
+    private final int matches_per_pairing;
+    private final int target;
+    private final SplittableRandom seeds;
+
+    private final List<String> names;
+    private final List<Supplier<Strategy>> strategies;
+
+    private Ratings ratings;
+    private int[] match_wins;
+    private int[] matches;
+    private int[] hands_won;
+    private long[] points;
+    private long[] box_scores;
+    private int[][] meetings;
+    private int matches_played;
+    private int matches_scheduled;
+
+    private Consumer<Tournament> listener;
+    private double stop_z;
+    private boolean decided;
+    private long start_nanos;
+    private long elapsed_nanos;
+
+    /**
+     * Initializes a tournament with no entrants.
+     * @param pairing ROUND_ROBIN or SWISS.
+     * @param rounds The number of rounds.
+     * @param matches_per_pairing The number of matches two paired entrants play in a round.
+     * @param target The score that ends a match (see Match).
+     * @param seed The seed the matches are dealt from.
+     */
+    Tournament(int pairing, int rounds, int matches_per_pairing, int target, long seed) {
+        if (pairing != ROUND_ROBIN && pairing != SWISS) {
+            throw new IllegalArgumentException("Unknown pairing " + pairing);
+        }
+        this.pairing = pairing;
+        this.rounds = rounds;
+        this.matches_per_pairing = matches_per_pairing;
+        this.target = target;
+        seeds = new SplittableRandom(seed);
+        names = new ArrayList<>();
+        strategies = new ArrayList<>();
+        listener = null;
+        stop_z = 0;
+    }
+
+    /**
+     * Adds an entrant.
+     * @param name The name shown in the standings.
+     * @param strategy Makes the entrant's strategy for each match.
+     * @return the entrant's number.
+     */
+    int add(String name, Supplier<Strategy> strategy) {
+        names.add(name);
+        strategies.add(strategy);
+        return names.size() - 1;
+    }
+
+    /**
+     * Calls a listener after every match, on the thread running the tournament,
+     * such as to print the standings as they change.
+     * @param listener The listener, or null for none.
+     */
+    void setListener(Consumer<Tournament> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Stops the tournament once the leader is decided: its rating minus z standard errors is
+     * above every other entrant's rating plus z standard errors. Since this is checked after
+     * every match, an early stop is more likely than z alone says; nothing is decided before
+     * every entrant played MIN_MATCHES_TO_DECIDE matches, and a larger z is safer.
+     * @param z The number of standard errors, such as 1.96; 0 to play every match.
+     */
+    void setStopWhenDecided(double z) {
+        stop_z = z;
+    }
+
+    /**
+     * Plays the tournament.
+     * @param pool The pool to play the matches on.
+     * @throws InterruptedException if interrupted while waiting for a match.
+     */
+    void run(ForkJoinPool pool) throws InterruptedException {
+        int entrants = names.size();
+        ratings = new Ratings(entrants);
+        match_wins = new int[entrants];
+        matches = new int[entrants];
+        hands_won = new int[entrants];
+        points = new long[entrants];
+        box_scores = new long[entrants];
+        meetings = new int[entrants][entrants];
+        matches_played = 0;
+        matches_scheduled = 0;
+        decided = false;
+        start_nanos = System.nanoTime();
+        elapsed_nanos = 0;
+
+        for (int round = 0; round < rounds && !decided; round++) {
+            List<Pairing> pairings = pairing == ROUND_ROBIN ? roundRobin() : swiss();
+            play(pool, pairings);
+        }
+    }
+
+    /**
+     * Plays the matches of a round and counts their results as they finish.
+     */
+    private void play(ForkJoinPool pool, List<Pairing> pairings) throws InterruptedException {
+        ExecutorCompletionService<Pairing> completion = new ExecutorCompletionService<>(pool);
+        List<Future<Pairing>> futures = new ArrayList<>(pairings.size());
+        for (Pairing pairing : pairings) {
+            futures.add(completion.submit(pairing));
+        }
+        matches_scheduled += pairings.size();
+
+        for (int i = 0; i < pairings.size(); i++) {
+            Pairing finished;
+            try {
+                finished = completion.take().get();
+            }
+            catch (ExecutionException e) {
+                for (Future<Pairing> future : futures) {
+                    future.cancel(false);
+                }
+                throw new IllegalStateException("A match failed", e.getCause());
+            }
+            count(finished);
+
+            if (stop_z > 0 && getLeader() >= 0) {
+                decided = true;
+                for (Future<Pairing> future : futures) {
+                    future.cancel(false);
+                }
+                // Matches already running still finish, but are not counted.
+                matches_scheduled -= pairings.size() - i - 1;
+                return;
+            }
+        }
+    }
+
+    private void count(Pairing finished) {
+        Match match = finished.match;
+        for (int side = 0; side < 2; side++) {
+            int entrant = finished.entrants[side];
+            matches[entrant]++;
+            hands_won[entrant] += match.getHandsWon(side);
+            points[entrant] += match.getPoints(side);
+            box_scores[entrant] += match.getBoxScore(side);
+        }
+        int winner = finished.entrants[match.getWinner()];
+        int loser = finished.entrants[1 - match.getWinner()];
+        match_wins[winner]++;
+        ratings.add(winner, loser);
+        matches_played++;
+        elapsed_nanos = System.nanoTime() - start_nanos;
+
+        if (listener != null) {
+            listener.accept(this);
+        }
+    }
+
+    /**
+     * Pairs every entrant with every other one, matches_per_pairing times,
+     * swapping who moves first in every other match.
+     */
+    private List<Pairing> roundRobin() {
+        List<Pairing> pairings = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            for (int j = i + 1; j < names.size(); j++) {
+                for (int k = 0; k < matches_per_pairing; k++) {
+                    pairings.add((k & 1) == 0 ? pair(i, j) : pair(j, i));
+                }
+            }
+        }
+        return pairings;
+    }
+
+    /**
+     * Pairs the entrants in order of standing: each one, from the top, plays the next unpaired
+     * entrant it met the least. With an odd number, the last one left has a bye this round.
+     */
+    private List<Pairing> swiss() {
+        int[] order = standings();
+        boolean[] paired = new boolean[order.length];
+        List<Pairing> pairings = new ArrayList<>();
+
+        for (int a = 0; a < order.length; a++) {
+            if (paired[a]) {
+                continue;
+            }
+            int best = -1;
+            for (int b = a + 1; b < order.length; b++) {
+                if (!paired[b] && (best < 0 || meetings[order[a]][order[b]] < meetings[order[a]][order[best]])) {
+                    best = b;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            paired[a] = true;
+            paired[best] = true;
+            meetings[order[a]][order[best]]++;
+            meetings[order[best]][order[a]]++;
+            for (int k = 0; k < matches_per_pairing; k++) {
+                pairings.add((k & 1) == 0 ? pair(order[a], order[best]) : pair(order[best], order[a]));
+            }
+        }
+        return pairings;
+    }
+
+    private Pairing pair(int entrant0, int entrant1) {
+        return new Pairing(entrant0, entrant1, strategies.get(entrant0), strategies.get(entrant1),
+                seeds.nextLong(), target);
+    }
+
+    /**
+     * Returns the entrants from first to last: by matches won, then by rating.
+     * @return the entrant numbers.
+     */
+    int[] standings() {
+        int entrants = names.size();
+        Integer[] order = new Integer[entrants];
+        for (int i = 0; i < entrants; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> match_wins[a] != match_wins[b] ? match_wins[b] - match_wins[a]
+                : Double.compare(ratings.getElo(b), ratings.getElo(a)));
+        int[] result = new int[entrants];
+        for (int i = 0; i < entrants; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the entrant whose rating is ahead of every other one by more than the
+     * confidence intervals of setStopWhenDecided(), if there is one yet.
+     * @return the entrant, or -1 if the leader is not decided.
+     */
+    int getLeader() {
+        double z = stop_z > 0 ? stop_z : 1.96;
+        for (int i = 0; i < names.size(); i++) {
+            if (matches[i] < MIN_MATCHES_TO_DECIDE) {
+                return -1;
+            }
+        }
+        int leader = 0;
+        for (int i = 1; i < names.size(); i++) {
+            if (ratings.getElo(i) > ratings.getElo(leader)) {
+                leader = i;
+            }
+        }
+        double low = ratings.getElo(leader) - ratings.getInterval(leader, z);
+        for (int i = 0; i < names.size(); i++) {
+            if (i != leader && ratings.getElo(i) + ratings.getInterval(i, z) >= low) {
+                return -1;
+            }
+        }
+        return leader;
+    }
+
+    /**
+     * Tests if the tournament stopped early because the leader was decided.
+     * @return true if it stopped early.
+     */
+    boolean isDecided() {
+        return decided;
+    }
+
+    int getMatchesPlayed() {
+        return matches_played;
+    }
+
+    /**
+     * Returns the number of matches scheduled so far, less the ones cancelled by an early stop.
+     * @return the number of matches.
+     */
+    int getMatchesScheduled() {
+        return matches_scheduled;
+    }
+
+    Ratings getRatings() {
+        return ratings;
+    }
+
+    String getName(int entrant) {
+        return names.get(entrant);
+    }
+
+    /**
+     * Writes the standings, one line per entrant from first to last, with its rating and
+     * 95% confidence interval, matches played and won, hands won, points and box score.
+     * @param builder The builder to append to.
+     * @return the builder.
+     */
+    StringBuilder appendStandings(StringBuilder builder) {
+        builder.append(String.format("%-4s %-20s %14s %9s %9s %9s %9s %10s%n",
+                "#", "entrant", "elo (95%)", "matches", "won", "hands", "points", "box score"));
+        int[] order = standings();
+        for (int rank = 0; rank < order.length; rank++) {
+            int i = order[rank];
+            builder.append(String.format("%-4d %-20s %6.0f +- %4.0f %9d %9d %9d %9d %10d%n", rank + 1, names.get(i),
+                    ratings.getElo(i), ratings.getInterval(i, 1.96), matches[i], match_wins[i], hands_won[i],
+                    points[i], box_scores[i]));
+        }
+        return builder;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d of %d matches (%.0f matches/s)%s%n", matches_played, matches_scheduled,
+                elapsed_nanos == 0 ? 0 : matches_played * 1e9 / elapsed_nanos, decided ? ", leader decided" : ""));
+        return appendStandings(builder).toString();
+    }
+
+    /**
+     * One match of a round, played on a pool thread; its result is read once it finished.
+     */
+    private final static class Pairing implements Callable<Pairing> {
+        private final int[] entrants;
+        private final Supplier<Strategy> strategy0;
+        private final Supplier<Strategy> strategy1;
+        private final long seed;
+        private final int target;
+        private Match match;
+
+        Pairing(int entrant0, int entrant1, Supplier<Strategy> strategy0, Supplier<Strategy> strategy1,
+                long seed, int target) {
+            entrants = new int[] {entrant0, entrant1};
+            this.strategy0 = strategy0;
+            this.strategy1 = strategy1;
+            this.seed = seed;
+            this.target = target;
+        }
+
+        @Override
+        public Pairing call() {
+            match = new Match(strategy0.get(), strategy1.get(), seed, target);
+            match.play();
+            return this;
+        }
+    }
+
+    /**
+     * Plays a tournament of the built-in strategies and streams the standings.
+     * @param args The pairing, "round-robin" (default) or "swiss", the number of rounds (default 10),
+     *             the matches per pairing in a round (default 100) and the number of threads
+     *             (default: one per core).
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int pairing = args.length > 0 && args[0].equals("swiss") ? SWISS : ROUND_ROBIN;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int matches = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        Tournament tournament = new Tournament(pairing, rounds, matches, Match.TARGET, System.nanoTime());
+        tournament.add("greedy", GreedyStrategy::new);
+        tournament.add("greedy+tracker", () -> new GreedyStrategy(new CardTracker()));
+        tournament.add("greedy, gin only", () -> new GreedyStrategy() {
+            @Override
+            public boolean knock(GameState state) {
+                return state.deadwood() == 0;
+            }
+        });
+        tournament.setStopWhenDecided(1.96);
+
+        long[] last_print = {System.nanoTime()};
+        tournament.setListener(t -> {
+            long now = System.nanoTime();
+            if (now - last_print[0] >= 5_000_000_000L) {
+                last_print[0] = now;
+                System.out.println(t);
+            }
+        });
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            tournament.run(pool);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        System.out.print(tournament);
+    }
+}
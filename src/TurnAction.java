@@ -0,0 +1,124 @@
+/**
+ * One move of a game of the player against the CPU, applied by TurnMachine.apply().
+ * The player's moves are one step each; the CPU's whole turn (draw, drop and knock) is one move.
+ */
+final class TurnAction {
+    // The kinds of move.
+    final static int DRAW_OPEN = 0;
+    final static int DRAW_CLOSED = 1;
+    final static int DISCARD = 2;
+    final static int KNOCK = 3;
+    final static int QUIT = 4;
+    final static int CPU_MOVE = 5;
+
+    private final static TurnAction DRAW_OPEN_ACTION = new TurnAction(DRAW_OPEN, 0, false, false);
+    private final static TurnAction DRAW_CLOSED_ACTION = new TurnAction(DRAW_CLOSED, 0, false, false);
+    private final static TurnAction QUIT_ACTION = new TurnAction(QUIT, 0, false, false);
+
+    private final int kind;
+    private final int card_id;
+    private final boolean from_open_deck;
+    private final boolean knock;
+
+    private TurnAction(int kind, int card_id, boolean from_open_deck, boolean knock) {
+        this.kind = kind;
+        this.card_id = card_id;
+        this.from_open_deck = from_open_deck;
+        this.knock = knock;
+    }
+
+    /**
+     * The player draws the top card of the open deck.
+     */
+    static TurnAction drawOpen() {
+        return DRAW_OPEN_ACTION;
+    }
+
+    /**
+     * The player draws the top card of the closed deck.
+     */
+    static TurnAction drawClosed() {
+        return DRAW_CLOSED_ACTION;
+    }
+
+    /**
+     * The player drops a card to the open deck.
+     * @param card_id The card ID.
+     */
+    static TurnAction discard(int card_id) {
+        return new TurnAction(DISCARD, card_id, false, false);
+    }
+
+    /**
+     * The player drops a card to the open deck and knocks.
+     * @param card_id The card ID, or 0 to knock with all 11 cards melded (big gin).
+     */
+    static TurnAction knock(int card_id) {
+        return new TurnAction(KNOCK, card_id, false, true);
+    }
+
+    /**
+     * The player quits.
+     */
+    static TurnAction quit() {
+        return QUIT_ACTION;
+    }
+
+    /**
+     * The CPU plays its turn.
+     * @param from_open_deck true to draw from the open deck, false from the closed deck.
+     * @param card_id The card ID the CPU drops, or 0 to knock for big gin without a drop.
+     * @param knock true if the CPU knocks after dropping.
+     */
+    static TurnAction cpuMove(boolean from_open_deck, int card_id, boolean knock) {
+        return new TurnAction(CPU_MOVE, card_id, from_open_deck, knock);
+    }
+
+    int getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the card dropped by DISCARD, KNOCK and CPU_MOVE.
+     * @return the card ID, or 0.
+     */
+    int getCardID() {
+        return card_id;
+    }
+
+    /**
+     * Tests if a CPU_MOVE draws from the open deck.
+     * @return true for the open deck, false for the closed deck.
+     */
+    boolean isFromOpenDeck() {
+        return from_open_deck;
+    }
+
+    /**
+     * Tests if the move knocks: KNOCK, or a CPU_MOVE that knocks.
+     * @return true if the move knocks.
+     */
+    boolean isKnock() {
+        return knock;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case DRAW_OPEN:
+                return "draw open";
+            case DRAW_CLOSED:
+                return "draw closed";
+            case DISCARD:
+                return "discard " + Card.label(card_id);
+            case KNOCK:
+                return card_id == 0 ? "knock, big gin" : "knock " + Card.label(card_id);
+            case QUIT:
+                return "quit";
+            default:
+                return "CPU " + (from_open_deck ? "draw open" : "draw closed")
+                        + (card_id == 0 && knock ? ", knock, big gin"
+                        : ", discard " + Card.label(card_id) + (knock ? ", knock" : ""));
+        }
+    }
+}
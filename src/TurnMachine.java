@@ -0,0 +1,329 @@
+/**
+ * The rules of a game of the player against the CPU, as transitions between TableStates.
+ *
+ *   DRAW           --draw open/closed-->  KNOCK_DECISION (10 or less deadwood) or DISCARD
+ *                  --draw closed, with 1 card or less left-->  GAME_OVER (draw)
+ *   KNOCK_DECISION --knock-->  GAME_OVER (player knocked)   --discard-->  CPU_TURN
+ *   DISCARD        --discard-->  CPU_TURN
+ *   CPU_TURN       --CPU move-->  DRAW, or GAME_OVER (CPU knocks, or the closed deck ran out)
+ *   DRAW, KNOCK_DECISION, DISCARD  --quit-->  GAME_OVER
+ *
+ * apply() is a pure function: it never changes its arguments and returns a new state, so a
+ * caller can keep, compare or save any state, and nothing waits on input. The CPU's move is
+ * an action like the player's; decideCPU() asks a strategy for it.
+ *
+ * A machine ranks drops in a DiscardRanking it keeps, so a draw does not allocate one;
+ * it is not thread safe, so use one machine per game.
+ *
+ * A knock with card 0 knocks without a drop, which is only legal when all 11 cards are melded
+ * (big gin). Who scores and how much is up to KnockResolver.
+ *
+ * The rules of a single move (isStockExhausted(), isBigGin(), isLegalDiscard(), canKnock() and
+ * bestDrop()) are also what GameEngine and GameReplay play by, on their own decks and hands.
+ */
+final class TurnMachine {
+    // The most deadwood a player may knock with.
+    final static int MAX_KNOCK_DEADWOOD = 10;
+
+    private final DiscardRanking ranking;
+
+    /**
+     * Initializes a machine with its own discard ranking.
+     */
+    TurnMachine() {
+        ranking = new DiscardRanking();
+    }
+
+    /**
+     * Tests if the closed deck is too short to draw from: drawing from it then ends the game as a draw.
+     * @param closed_size The number of cards in the closed deck.
+     * @return true if the game ends instead of the draw.
+     */
+    static boolean isStockExhausted(int closed_size) {
+        return closed_size <= 1;
+    }
+
+    /**
+     * Tests if a hand just drawn to 11 cards melds all of them: its player knocks at once, without a drop.
+     * @param hand The 11 cards.
+     * @return true for big gin.
+     */
+    static boolean isBigGin(long hand) {
+        return MeldTable.deadwood(hand) == 0;
+    }
+
+    /**
+     * Tests if a player may drop a card: it is in the hand, and was not just drawn from the open deck.
+     * @param hand The player's cards.
+     * @param card_id The card ID to drop.
+     * @param drawn_open_card_id The card drawn from the open deck this turn, 0 if none.
+     * @return true if the drop is legal.
+     */
+    static boolean isLegalDiscard(long hand, int card_id, int drawn_open_card_id) {
+        return card_id >= 1 && card_id <= 52 && card_id != drawn_open_card_id
+                && (hand & HandMask.bitOf(card_id)) != 0;
+    }
+
+    /**
+     * Tests if a player may knock after the drop.
+     * @param deadwood The deadwood of the hand after the drop.
+     * @return true if it is MAX_KNOCK_DEADWOOD or less.
+     */
+    static boolean canKnock(int deadwood) {
+        return deadwood <= MAX_KNOCK_DEADWOOD;
+    }
+
+    /**
+     * Starts a game.
+     * @param seed The seed of the closed deck.
+     * @return the state after the deal, waiting for the player's first draw.
+     */
+    static TableState deal(long seed) {
+        return TableState.deal(seed);
+    }
+
+    /**
+     * Plays a move.
+     * @param state The state before the move.
+     * @param action The move.
+     * @return the state after the move.
+     * @throws IllegalArgumentException if the move is not legal in the state.
+     */
+    TableState apply(TableState state, TurnAction action) {
+        switch (state.getPhase()) {
+            case DRAW:
+                if (action.getKind() == TurnAction.DRAW_OPEN) {
+                    return drawOpen(state, action);
+                }
+                if (action.getKind() == TurnAction.DRAW_CLOSED) {
+                    return drawClosed(state);
+                }
+                break;
+            case KNOCK_DECISION:
+                if (action.getKind() == TurnAction.KNOCK) {
+                    return knock(state, action);
+                }
+                if (action.getKind() == TurnAction.DISCARD) {
+                    return discard(state, action);
+                }
+                break;
+            case DISCARD:
+                if (action.getKind() == TurnAction.DISCARD) {
+                    return discard(state, action);
+                }
+                break;
+            case CPU_TURN:
+                if (action.getKind() == TurnAction.CPU_MOVE) {
+                    return cpuMove(state, action);
+                }
+                break;
+            default:
+                break;
+        }
+        if (action.getKind() == TurnAction.QUIT && state.getPhase() != TurnPhase.CPU_TURN
+                && state.getPhase() != TurnPhase.GAME_OVER) {
+            return over(state, state.getPlayerHand(), state.getComputerHand(), state.getTurns(),
+                    GameRecord.QUIT, GameResult.NO_WINNER);
+        }
+        throw illegal(state, action);
+    }
+
+    /**
+     * Asks a strategy for the CPU's move, the way GameEngine does:
+     * a drop the rules do not allow is replaced by the best legal one,
+     * and a draw that melds all 11 cards knocks at once for big gin.
+     * Unlike apply(), this depends on the strategy, which may be random.
+     * @param state A state in the CPU_TURN phase.
+     * @param strategy The CPU's strategy.
+     * @return the move.
+     */
+    TurnAction decideCPU(TableState state, Strategy strategy) {
+        long hand = state.getComputerHand();
+        long pile = state.getOpenMask();
+        long picked = state.getPlayerPicked();
+        int open_card_id = state.getOpenTopID();
+        int stock_size = state.getClosedSize();
+
+        boolean from_open = open_card_id != 0
+                && strategy.drawFromOpenDeck(new GameState(hand, pile, picked, open_card_id, 0, stock_size));
+        if (!from_open && isStockExhausted(stock_size)) {
+            // The closed deck ran out: the move ends the game whatever the CPU drops.
+            return TurnAction.cpuMove(false, 0, false);
+        }
+
+        int drawn_open_card_id = 0;
+        if (from_open) {
+            drawn_open_card_id = open_card_id;
+            hand |= HandMask.bitOf(open_card_id);
+            pile &= ~HandMask.bitOf(open_card_id);
+            open_card_id = state.getOpenSize() > 1 ? state.getOpenID(state.getOpenSize() - 2) : 0;
+        }
+        else {
+            hand |= HandMask.bitOf(state.getClosedTopID());
+            stock_size--;
+        }
+        if (isBigGin(hand)) {
+            return TurnAction.cpuMove(from_open, 0, true);
+        }
+
+        int discard = strategy.chooseDiscard(new GameState(hand, pile, picked, open_card_id,
+                drawn_open_card_id, stock_size));
+        if (!isLegalDiscard(hand, discard, drawn_open_card_id)) {
+            discard = bestDrop(hand, drawn_open_card_id);
+        }
+        hand &= ~HandMask.bitOf(discard);
+        pile |= HandMask.bitOf(discard);
+
+        boolean knock = canKnock(MeldTable.deadwood(hand))
+                && strategy.knock(new GameState(hand, pile, picked, discard, 0, stock_size));
+        return TurnAction.cpuMove(from_open, discard, knock);
+    }
+
+    /**
+     * Picks the drop of an 11-card hand that leaves the least deadwood,
+     * other than the card drawn from the open deck.
+     * @param hand The 11 cards.
+     * @param drawn_open_card_id The card drawn from the open deck this turn, 0 if none.
+     * @return the card ID.
+     */
+    int bestDrop(long hand, int drawn_open_card_id) {
+        ranking.rank(hand);
+        for (int i = 0; i < ranking.size(); i++) {
+            if (ranking.getCardID(i) != drawn_open_card_id) {
+                return ranking.getCardID(i);
+            }
+        }
+        return 0;
+    }
+
+    private TableState drawOpen(TableState state, TurnAction action) {
+        int card_id = state.getOpenTopID();
+        if (card_id == 0) {
+            throw illegal(state, action);
+        }
+        long bit = HandMask.bitOf(card_id);
+        long hand = state.getPlayerHand() | bit;
+        return new TableState(afterDraw(hand, card_id), state.getSeed(), state.getClosed(), state.openWithoutTop(),
+                hand, state.getComputerHand(), state.getPlayerPicked() | bit, card_id,
+                (byte) 0, GameResult.NO_WINNER, state.getTurns());
+    }
+
+    private TableState drawClosed(TableState state) {
+        if (isStockExhausted(state.getClosedSize())) {
+            return over(state, state.getPlayerHand(), state.getComputerHand(), state.getTurns(),
+                    GameRecord.DRAW_GAME, GameResult.NO_WINNER);
+        }
+        long hand = state.getPlayerHand() | HandMask.bitOf(state.getClosedTopID());
+        return new TableState(afterDraw(hand, 0), state.getSeed(), state.closedWithoutTop(), state.getOpen(),
+                hand, state.getComputerHand(), state.getPlayerPicked(), 0,
+                (byte) 0, GameResult.NO_WINNER, state.getTurns());
+    }
+
+    /**
+     * Returns the phase after the player draws: the player may knock if a legal drop leaves 10 or less deadwood.
+     */
+    private TurnPhase afterDraw(long hand, int drawn_open_card_id) {
+        long rest = hand & ~HandMask.bitOf(bestDrop(hand, drawn_open_card_id));
+        return canKnock(MeldTable.deadwood(rest)) ? TurnPhase.KNOCK_DECISION : TurnPhase.DISCARD;
+    }
+
+    private static TableState discard(TableState state, TurnAction action) {
+        long bit = legalDiscard(state, action);
+        return new TableState(TurnPhase.CPU_TURN, state.getSeed(), state.getClosed(),
+                state.openWith(action.getCardID()), state.getPlayerHand() & ~bit, state.getComputerHand(),
+                state.getPlayerPicked() & ~bit, 0, (byte) 0, GameResult.NO_WINNER, state.getTurns() + 1);
+    }
+
+    private static TableState knock(TableState state, TurnAction action) {
+        if (action.getCardID() == 0) {
+            if (!isBigGin(state.getPlayerHand())) {
+                throw illegal(state, action);
+            }
+            return new TableState(TurnPhase.GAME_OVER, state.getSeed(), state.getClosed(), state.getOpen(),
+                    state.getPlayerHand(), state.getComputerHand(), state.getPlayerPicked(), 0,
+                    GameRecord.KNOCK, 0, state.getTurns() + 1);
+        }
+        long bit = legalDiscard(state, action);
+        long hand = state.getPlayerHand() & ~bit;
+        if (!canKnock(MeldTable.deadwood(hand))) {
+            throw illegal(state, action);
+        }
+        return new TableState(TurnPhase.GAME_OVER, state.getSeed(), state.getClosed(),
+                state.openWith(action.getCardID()), hand, state.getComputerHand(),
+                state.getPlayerPicked() & ~bit, 0, GameRecord.KNOCK, 0, state.getTurns() + 1);
+    }
+
+    /**
+     * Checks that the player may drop the card of a move (see isLegalDiscard()).
+     * @return the card's bit.
+     */
+    private static long legalDiscard(TableState state, TurnAction action) {
+        int card_id = action.getCardID();
+        if (!isLegalDiscard(state.getPlayerHand(), card_id, state.getDrawnOpenCardID())) {
+            throw illegal(state, action);
+        }
+        return HandMask.bitOf(card_id);
+    }
+
+    private static TableState cpuMove(TableState state, TurnAction action) {
+        long hand = state.getComputerHand();
+        byte[] closed = state.getClosed();
+        byte[] open = state.getOpen();
+        int drawn_open_card_id = 0;
+
+        if (action.isFromOpenDeck()) {
+            drawn_open_card_id = state.getOpenTopID();
+            if (drawn_open_card_id == 0) {
+                throw illegal(state, action);
+            }
+            hand |= HandMask.bitOf(drawn_open_card_id);
+            open = state.openWithoutTop();
+        }
+        else {
+            if (isStockExhausted(state.getClosedSize())) {
+                return over(state, state.getPlayerHand(), hand, state.getTurns(),
+                        GameRecord.DRAW_GAME, GameResult.NO_WINNER);
+            }
+            hand |= HandMask.bitOf(state.getClosedTopID());
+            closed = state.closedWithoutTop();
+        }
+
+        int card_id = action.getCardID();
+        if (card_id == 0 && action.isKnock()) {
+            if (!isBigGin(hand)) {
+                throw illegal(state, action);
+            }
+            return new TableState(TurnPhase.GAME_OVER, state.getSeed(), closed, open, state.getPlayerHand(), hand,
+                    state.getPlayerPicked(), 0, GameRecord.KNOCK, 1, state.getTurns() + 1);
+        }
+        if (!isLegalDiscard(hand, card_id, drawn_open_card_id)) {
+            throw illegal(state, action);
+        }
+        hand &= ~HandMask.bitOf(card_id);
+        byte[] pile = new byte[open.length + 1];
+        System.arraycopy(open, 0, pile, 0, open.length);
+        pile[open.length] = (byte) card_id;
+
+        if (action.isKnock()) {
+            if (!canKnock(MeldTable.deadwood(hand))) {
+                throw illegal(state, action);
+            }
+            return new TableState(TurnPhase.GAME_OVER, state.getSeed(), closed, pile, state.getPlayerHand(), hand,
+                    state.getPlayerPicked(), 0, GameRecord.KNOCK, 1, state.getTurns() + 1);
+        }
+        return new TableState(TurnPhase.DRAW, state.getSeed(), closed, pile, state.getPlayerHand(), hand,
+                state.getPlayerPicked(), 0, (byte) 0, GameResult.NO_WINNER, state.getTurns() + 1);
+    }
+
+    private static TableState over(TableState state, long player_hand, long computer_hand, int turns,
+                                   byte ending, int knocker) {
+        return new TableState(TurnPhase.GAME_OVER, state.getSeed(), state.getClosed(), state.getOpen(),
+                player_hand, computer_hand, state.getPlayerPicked(), 0, ending, knocker, turns);
+    }
+
+    private static IllegalArgumentException illegal(TableState state, TurnAction action) {
+        int card_id = action.getCardID();
+        String move = card_id >= 0 && card_id <= 52 ? action.toString() : "move with card ID " + card_id;
+        return new IllegalArgumentException("Cannot " + move + " in phase " + state.getPhase());
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * What a game of the player against the CPU waits for (see TurnMachine).
+ */
+enum TurnPhase {
+    // The player draws from the open deck or the closed deck, or quits.
+    DRAW,
+    // The player drew a hand with 10 or less deadwood and may knock, or else drop a card.
+    KNOCK_DECISION,
+    // The player drops a card, or quits.
+    DISCARD,
+    // The CPU draws, drops and maybe knocks.
+    CPU_TURN,
+    // Someone knocked, the closed deck ran out, or the player quit.
+    GAME_OVER
+}
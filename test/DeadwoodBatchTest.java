@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks DeadwoodBatch against MeldTable.deadwood(), on one thread and split into fork-join tasks.
+ */
+class DeadwoodBatchTest {
+
+    /**
+     * Returns a hand made mostly of whole face values, so that most of its cards are in sets
+     * and many of them are in runs too.
+     */
+    private static long setHeavyHand(SplittableRandom random, int cards) {
+        long hand = 0;
+        while (Long.bitCount(hand) < cards) {
+            long face = HandMask.rank(random.nextInt(13) + 1);
+            // Three or four cards of the face, from its lowest suits up.
+            for (int suit = random.nextInt(2); suit < 4 && Long.bitCount(hand) < cards; suit++) {
+                hand |= face & HandMask.suit(suit);
+            }
+        }
+        return hand;
+    }
+
+    /**
+     * Returns random, dense and set-heavy hands of 10 and 11 cards, in turn.
+     */
+    private static long[] hands(long seed, int count) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] hands = new long[count];
+        for (int i = 0; i < count; i++) {
+            int cards = 10 + (i / 3) % 2;
+            switch (i % 3) {
+                case 0:
+                    hands[i] = MeldTableTest.randomHand(random, cards, false);
+                    break;
+                case 1:
+                    hands[i] = MeldTableTest.randomHand(random, cards, true);
+                    break;
+                default:
+                    hands[i] = setHeavyHand(random, cards);
+                    break;
+            }
+        }
+        return hands;
+    }
+
+    private static void check(long[] hands, int[] deadwoods, int from, int to) {
+        for (int i = from; i < to; i++) {
+            assertEquals(MeldTable.deadwood(hands[i]), deadwoods[i], "hand " + i + ": " + Long.toHexString(hands[i]));
+        }
+    }
+
+    @Test
+    void scoresSmallBatchesOnTheCallingThread() {
+        long[] hands = hands(23, 3 * DeadwoodBatch.BLOCK + 17);
+        int[] deadwoods = new int[hands.length];
+        Arrays.fill(deadwoods, -1);
+        DeadwoodBatch.deadwood(hands, deadwoods);
+        check(hands, deadwoods, 0, hands.length);
+
+        // A range that starts and ends inside blocks leaves the rest alone.
+        Arrays.fill(deadwoods, -1);
+        DeadwoodBatch.deadwood(hands, deadwoods, 100, hands.length - 100);
+        check(hands, deadwoods, 100, hands.length - 100);
+        assertEquals(-1, deadwoods[99]);
+        assertEquals(-1, deadwoods[hands.length - 100]);
+    }
+
+    @Test
+    void scoresLargeBatchesInForkJoinTasks() {
+        long[] hands = hands(32, 3 * DeadwoodBatch.MIN_TASK + 123);
+        int[] deadwoods = new int[hands.length];
+        Arrays.fill(deadwoods, -1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DeadwoodBatch.deadwood(hands, deadwoods, pool);
+        }
+        finally {
+            pool.shutdown();
+        }
+        check(hands, deadwoods, 0, hands.length);
+    }
+}
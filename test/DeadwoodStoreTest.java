@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Builds small stores and checks that they answer as MeldTable.handDeadwood() and
+ * PlayerHand.calculateDeadwood() do.
+ */
+class DeadwoodStoreTest {
+
+    @Test
+    void storesAnswerAsMeldTable(@TempDir Path directory) throws IOException {
+        SplittableRandom random = new SplittableRandom(24);
+        for (int cards = 1; cards <= 5; cards++) {
+            try (DeadwoodStore store = DeadwoodStore.build(directory.resolve("deadwood" + cards + ".bin"), cards,
+                    ForkJoinPool.commonPool())) {
+                assertEquals(SuitCanonicalizer.count(cards), store.getEntries());
+                for (int i = 0; i < 20000; i++) {
+                    long hand = MeldTableTest.randomHand(random, cards, i % 2 == 0);
+                    assertEquals(MeldTable.handDeadwood(hand), store.lookup(hand), Long.toHexString(hand));
+                }
+            }
+        }
+    }
+
+    @Test
+    void installedStoreScoresPlayerHands(@TempDir Path directory) throws IOException {
+        try (DeadwoodStore store = DeadwoodStore.build(directory.resolve("deadwood4.bin"), 4,
+                ForkJoinPool.commonPool())) {
+            DeadwoodStore.install(store);
+            SplittableRandom random = new SplittableRandom(7);
+            for (int i = 0; i < 20000; i++) {
+                long hand = MeldTableTest.randomHand(random, 4, i % 2 == 0);
+                PlayerHand player_hand = new PlayerHand();
+                for (long cards = hand; cards != 0; cards &= cards - 1) {
+                    player_hand.addCard(Card.of(Long.numberOfTrailingZeros(cards) + 1));
+                }
+                assertEquals(MeldTable.handDeadwood(hand), player_hand.calculateDeadwood(), Long.toHexString(hand));
+            }
+        }
+        finally {
+            DeadwoodStore.install(null);
+        }
+    }
+
+    @Test
+    void peeksReadTheInstalledStore(@TempDir Path directory) throws IOException {
+        // A store that answers 51 for every hand, which MeldTable never would for 4 cards.
+        Path path = directory.resolve("deadwood4.bin");
+        long entries;
+        try (DeadwoodStore store = DeadwoodStore.build(path, 4, ForkJoinPool.commonPool())) {
+            entries = store.getEntries();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            byte[] bytes = new byte[(int) entries];
+            Arrays.fill(bytes, (byte) 52);
+            channel.write(ByteBuffer.wrap(bytes), DeadwoodStore.HEADER_SIZE);
+        }
+
+        try (DeadwoodStore store = DeadwoodStore.open(path)) {
+            DeadwoodStore.install(store);
+            PlayerHand hand = new PlayerHand();
+            for (int card_id = 1; card_id <= 3; card_id++) {
+                hand.addCard(Card.of(card_id * 3));
+            }
+            assertEquals(51, hand.peekDeadwoodWith(Card.of(40)));
+            hand.addCard(Card.of(40));
+            assertEquals(51, hand.calculateDeadwood());
+
+            hand.addCard(Card.of(41));
+            assertEquals(51, hand.peekDeadwoodWithout(Card.of(3)));
+            hand.removeCardFromHand(Card.of(3));
+            assertEquals(51, hand.calculateDeadwood());
+        }
+        finally {
+            DeadwoodStore.install(null);
+        }
+    }
+
+    @Test
+    void storesOfAnotherVersionAreRejected(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("deadwood3.bin");
+        DeadwoodStore.build(path, 3, ForkJoinPool.commonPool()).close();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {2}), 2);
+        }
+        assertThrows(IOException.class, () -> DeadwoodStore.open(path));
+    }
+}
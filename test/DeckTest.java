@@ -0,0 +1,66 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the ring buffer of Deck through OpenDeck and ClosedDeck.
+ */
+class DeckTest {
+
+    @Test
+    void takingFromAnEmptyDeckThrowsAndKeepsItEmpty() {
+        OpenDeck deck = new OpenDeck();
+        assertThrows(NoSuchElementException.class, deck::removeLastCard);
+        assertThrows(NoSuchElementException.class, deck::removeFirstCard);
+        assertEquals(0, deck.length());
+        assertNull(deck.getLastCard());
+
+        deck.addCard(Card.of(5));
+        assertEquals(5, deck.removeLastCard().getCardID());
+        assertEquals(0, deck.length());
+    }
+
+    @Test
+    void addingToAFullDeckThrowsAndKeepsTheCards() {
+        ClosedDeck deck = new ClosedDeck(1);
+        String cards = deck.toString();
+        assertThrows(IllegalStateException.class, () -> deck.addCard(Card.of(1)));
+        assertThrows(IllegalStateException.class, () -> deck.addCards(new byte[] {1, 2}, 0, 2));
+        assertEquals(Deck.CAPACITY, deck.length());
+        assertEquals(cards, deck.toString());
+    }
+
+    @Test
+    void dealingMoreCardsThanTheDeckHoldsThrows() {
+        ClosedDeck deck = new ClosedDeck(1);
+        OpenDeck open = new OpenDeck();
+        deck.dealTo(open, 50);
+        assertThrows(NoSuchElementException.class, () -> deck.dealTo(open, 3));
+        assertEquals(2, deck.length());
+        assertEquals(50, open.length());
+    }
+
+    @Test
+    void cardsKeepTheirOrderAcrossTheEndOfTheBuffer() {
+        ClosedDeck deck = new ClosedDeck(1);
+        for (int i = 0; i < 40; i++) {
+            deck.removeFirstCard();
+        }
+        int[] expected = new int[30];
+        for (int i = 0; i < 12; i++) {
+            expected[i] = deck.idAt(i);
+        }
+        for (int i = 12; i < 30; i++) {
+            expected[i] = i - 11;
+            deck.addCard(Card.of(i - 11));
+        }
+        for (int i = 0; i < 30; i++) {
+            assertEquals(expected[i], deck.removeFirstCard().getCardID());
+        }
+        assertEquals(0, deck.length());
+    }
+}
@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Records engine games, reads the archive back and replays every record to the same result.
+ */
+class GameRecordTest {
+    private final static int GAMES = 500;
+
+    /**
+     * Plays GAMES games into a writer.
+     * @return the seed and result of each game.
+     */
+    private static List<Object[]> record(GameRecordWriter writer) {
+        GameEngine engine = new GameEngine(new GreedyStrategy(), new GreedyStrategy(new CardTracker()));
+        engine.setRecorder(writer);
+        List<Object[]> games = new ArrayList<>();
+        for (int game = 0; game < GAMES; game++) {
+            long seed = game * 0x9E3779B97F4A7C15L;
+            engine.reset(seed);
+            games.add(new Object[] {seed, engine.play()});
+        }
+        return games;
+    }
+
+    private static void replay(GameRecordReader reader, List<Object[]> games) throws IOException {
+        GameReplay replay = new GameReplay();
+        for (Object[] game : games) {
+            assertTrue(reader.next());
+            assertEquals((long) game[0], reader.getSeed());
+
+            replay.load(reader);
+            replay.seekEnd();
+            GameResult expected = (GameResult) game[1];
+            GameResult result = replay.result();
+            assertEquals(expected.getWinner(), result.getWinner(), expected.toString());
+            assertEquals(expected.getKnocker(), result.getKnocker(), expected.toString());
+            assertEquals(expected.getPoints(), result.getPoints(), expected.toString());
+            assertEquals(expected.getTurns(), result.getTurns(), expected.toString());
+            assertEquals(expected.isStockExhausted(), result.isStockExhausted(), expected.toString());
+        }
+        assertFalse(reader.next());
+        assertEquals(games.size(), reader.getRecords());
+    }
+
+    @Test
+    void streamRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameRecordWriter writer = new GameRecordWriter(bytes);
+        List<Object[]> games = record(writer);
+        writer.close();
+        assertEquals(GAMES, writer.getGames());
+
+        replay(GameRecordReader.read(new ByteArrayInputStream(bytes.toByteArray()), false), games);
+    }
+
+    @Test
+    void compressedRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameRecordWriter writer = new GameRecordWriter(new GZIPOutputStream(bytes));
+        List<Object[]> games = record(writer);
+        writer.close();
+
+        replay(GameRecordReader.read(new ByteArrayInputStream(bytes.toByteArray()), true), games);
+    }
+
+    @Test
+    void truncatedCompressedArchivesFailAtTheirLastRecord() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameRecordWriter writer = new GameRecordWriter(bytes);
+        List<Object[]> games = record(writer);
+        writer.close();
+        byte[] archive = bytes.toByteArray();
+
+        // Cut the last record short, inside its events.
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(Arrays.copyOf(archive, archive.length - 1));
+        }
+        GameRecordReader reader = GameRecordReader.read(new ByteArrayInputStream(compressed.toByteArray()), true);
+        for (int game = 0; game < games.size() - 1; game++) {
+            assertTrue(reader.next());
+            assertEquals((long) games.get(game)[0], reader.getSeed());
+        }
+        assertThrows(IOException.class, reader::next);
+    }
+
+    @Test
+    void mappedFileRoundTrip(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("games.bin");
+        List<Object[]> games;
+        try (GameRecordWriter writer = GameRecordWriter.open(path, false)) {
+            games = record(writer);
+        }
+        try (GameRecordReader reader = GameRecordReader.map(path)) {
+            replay(reader, games);
+        }
+    }
+}
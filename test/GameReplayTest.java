@@ -0,0 +1,63 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that GameEngine and GameReplay play by the same turn rules (see TurnMachine).
+ */
+class GameReplayTest {
+
+    @Test
+    void replayRejectsDroppingTheCardJustDrawnFromTheOpenDeck() {
+        GameReplay replay = new GameReplay();
+        replay.load(5, new byte[0], 0, 0);
+        byte open_card_id = (byte) replay.getOpenDeck().getLastCard().getCardID();
+
+        replay.load(5, new byte[] {GameRecord.DRAW_OPEN, open_card_id}, 0, 2);
+        assertTrue(replay.step());
+        assertThrows(IllegalStateException.class, replay::step);
+    }
+
+    @Test
+    void engineReplacesIllegalDropsWithOnesTheReplayAccepts() throws IOException {
+        // Always takes the open card and tries to drop it straight back.
+        Strategy stubborn = new GreedyStrategy() {
+            @Override
+            public boolean drawFromOpenDeck(GameState state) {
+                return true;
+            }
+
+            @Override
+            public int chooseDiscard(GameState state) {
+                return state.getDrawnOpenCardID();
+            }
+        };
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameRecordWriter writer = new GameRecordWriter(bytes);
+        GameEngine engine = new GameEngine(stubborn, new GreedyStrategy(), 0);
+        engine.setRecorder(writer);
+        GameResult[] results = new GameResult[100];
+        for (int game = 0; game < results.length; game++) {
+            engine.reset(game);
+            results[game] = engine.play();
+        }
+        writer.close();
+
+        GameRecordReader reader = GameRecordReader.read(new ByteArrayInputStream(bytes.toByteArray()), false);
+        GameReplay replay = new GameReplay();
+        for (GameResult expected : results) {
+            assertTrue(reader.next());
+            replay.load(reader);
+            GameResult result = replay.result();
+            assertEquals(expected.getWinner(), result.getWinner(), expected.toString());
+            assertEquals(expected.getPoints(), result.getPoints(), expected.toString());
+            assertEquals(expected.getTurns(), result.getTurns(), expected.toString());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Tests that one failing session does not take its event loop down.
+ */
+@Timeout(30)
+class GameServerTest {
+
+    /**
+     * Reads until the prompt ">>> " or the end of the stream.
+     * @return true if the prompt came, false if the server closed the connection.
+     */
+    private static boolean readPrompt(InputStream in) throws IOException {
+        StringBuilder text = new StringBuilder();
+        int b;
+        while ((b = in.read()) >= 0) {
+            text.append((char) b);
+            if (text.length() >= 4 && text.substring(text.length() - 4).equals(">>> ")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void aFailingRecorderClosesOnlyItsSession() throws Exception {
+        // Every record fails to be written: GameRecordWriter throws UncheckedIOException.
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        try (GameServer server = new GameServer(0, 1, GreedyStrategy::new)) {
+            server.setRecorder(new GameRecordWriter(broken));
+            server.start();
+            InetSocketAddress address = new InetSocketAddress("localhost", server.getPort());
+
+            try (Socket first = new Socket(address.getAddress(), address.getPort());
+                 Socket second = new Socket(address.getAddress(), address.getPort())) {
+                assertTrue(readPrompt(first.getInputStream()));
+                assertTrue(readPrompt(second.getInputStream()));
+
+                // Quitting writes the record, which throws on the loop's thread.
+                first.getOutputStream().write("q\n".getBytes(StandardCharsets.US_ASCII));
+                assertFalse(readPrompt(first.getInputStream()));
+
+                // The loop still serves its other session and new ones.
+                second.getOutputStream().write("2\n".getBytes(StandardCharsets.US_ASCII));
+                assertTrue(readPrompt(second.getInputStream()));
+                try (Socket third = new Socket(address.getAddress(), address.getPort())) {
+                    assertTrue(readPrompt(third.getInputStream()));
+                }
+            }
+        }
+    }
+}
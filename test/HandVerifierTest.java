@@ -0,0 +1,44 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that HandVerifier resumes only from a checkpoint written with the same options.
+ */
+class HandVerifierTest {
+
+    private static String[] options(Path directory, String chunk, String sample) {
+        return new String[] {"-cards", "3", "-chunk", chunk, "-sample", sample,
+                "-checkpoint", directory.resolve("verify.checkpoint").toString(),
+                "-report", directory.resolve("verify.report").toString()};
+    }
+
+    @Test
+    void resumesFromItsOwnCheckpoint(@TempDir Path directory) throws IOException {
+        HandVerifier.main(options(directory, "5000", "0"));
+        HandVerifier.main(options(directory, "5000", "0"));
+
+        // C(52, 3) = 22100 hands in 5 chunks, each checked once.
+        List<String> lines = Files.readAllLines(directory.resolve("verify.checkpoint"));
+        assertEquals("HandVerifier -cards 3 -chunk 5000 -sample 0", lines.get(0));
+        assertEquals(6, lines.size());
+        assertEquals(0, Files.size(directory.resolve("verify.report")));
+    }
+
+    @Test
+    void refusesCheckpointsOfOtherOptions(@TempDir Path directory) throws IOException {
+        HandVerifier.main(options(directory, "5000", "0"));
+        List<String> lines = Files.readAllLines(directory.resolve("verify.checkpoint"));
+
+        assertThrows(IOException.class, () -> HandVerifier.main(options(directory, "4000", "0")));
+        assertThrows(IOException.class, () -> HandVerifier.main(options(directory, "5000", "100")));
+        assertEquals(lines, Files.readAllLines(directory.resolve("verify.checkpoint")));
+    }
+}
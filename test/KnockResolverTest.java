@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Scores a table of knocks, each by hand, with both KnockResolver.resolve() overloads.
+ */
+class KnockResolverTest {
+
+    /**
+     * name, knocker, knocker's hand, defender's hand,
+     * type, winner, points, knocker's deadwood, defender's deadwood, cards laid off.
+     */
+    private final static Object[][] KNOCKS = {
+        {"the fourth card of a set is laid off", 0,
+                "7S 7H 7D 2C 3C 4C 9S 10S JS AH", "7C 2D 4D 6D 8H 10H QH 3S 5S KS",
+                KnockResult.KNOCK, 0, 57, 1, 58, "7C"},
+        {"chains are laid off below and above a run", 1,
+                "5H 6H 7H QS QD QH 8C 9C 10C 2S", "3H 4H 8H 9H KD JS 2C 5D 7S AC",
+                KnockResult.KNOCK, 1, 33, 2, 35, "3H 4H 8H 9H"},
+        {"a chain with a gap is not laid off", 0,
+                "5H 6H 7H QS QD QH 8C 9C 10C 2S", "3H 9H KD JS 2C 5D 7S AC 4C 6D",
+                KnockResult.KNOCK, 0, 55, 2, 57, ""},
+        {"equal deadwood after layoffs is an undercut", 0,
+                "5H 6H 7H QS QD QH 8C 9C 10C 4S", "2D 3D 4D 6S 6C 6D JS JC JD 4C",
+                KnockResult.UNDERCUT, 1, 25, 4, 4, ""},
+        {"equal deadwood is an undercut for either knocker", 1,
+                "5H 6H 7H QS QD QH 8C 9C 10C 4S", "2D 3D 4D 6S 6C 6D JS JC JD 4C",
+                KnockResult.UNDERCUT, 0, 25, 4, 4, ""},
+        {"nothing is laid off on gin", 0,
+                "5H 6H 7H QS QD QH 8C 9C 10C JC", "4H 8H QC 7C AD 3S 9D KD 2C 6S",
+                KnockResult.GIN, 0, 85, 0, 60, ""},
+        {"big gin melds all eleven cards", 1,
+                "5H 6H 7H QS QD QH 8C 9C 10C JC QC", "4H 8H KC 7C AD 3S 9D KD 2C 6S",
+                KnockResult.BIG_GIN, 1, 91, 0, 60, ""},
+    };
+
+    private static long mask(String labels) {
+        long mask = 0;
+        for (String label : labels.split(" ")) {
+            if (!label.isEmpty()) {
+                mask |= HandMask.bitOf(PlayerHandTest.card(label).getCardID());
+            }
+        }
+        return mask;
+    }
+
+    private static void check(Object[] knock, KnockResult result) {
+        String name = (String) knock[0];
+        assertEquals((int) knock[4], result.getType(), name);
+        assertEquals((int) knock[1], result.getKnocker(), name);
+        assertEquals((int) knock[5], result.getWinner(), name);
+        assertEquals((int) knock[6], result.getPoints(), name);
+        assertEquals((int) knock[7], result.getKnockerDeadwood(), name);
+        assertEquals((int) knock[8], result.getDefenderDeadwood(), name);
+        assertEquals(mask((String) knock[9]), result.getLayoffs(), name);
+    }
+
+    @Test
+    void scoresKnocksOnMasks() {
+        KnockResolver resolver = new KnockResolver();
+        for (Object[] knock : KNOCKS) {
+            check(knock, resolver.resolve((int) knock[1], mask((String) knock[2]), mask((String) knock[3])));
+        }
+    }
+
+    @Test
+    void scoresKnocksOnLaidOutHands() {
+        KnockResolver resolver = new KnockResolver();
+        for (Object[] knock : KNOCKS) {
+            PlayerHand knocker = PlayerHandTest.hand(((String) knock[2]).split(" "));
+            PlayerHand defender = PlayerHandTest.hand(((String) knock[3]).split(" "));
+            check(knock, resolver.resolve((int) knock[1], knocker, defender));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the strategies of a match start every hand afresh, and that a tied match
+ * favours neither seat.
+ */
+class MatchTest {
+
+    /**
+     * A tracking greedy strategy that counts the hands it is told about and checks, at every
+     * decision, that its tracker agrees with a new tracker fed the same snapshots of the current hand.
+     */
+    private static class CheckedStrategy implements Strategy {
+        private final CardTracker tracker = new CardTracker();
+        private final GreedyStrategy greedy = new GreedyStrategy(tracker);
+        private CardTracker fresh;
+        private int new_hands;
+
+        @Override
+        public void newHand() {
+            greedy.newHand();
+            fresh = new CardTracker();
+            new_hands++;
+        }
+
+        private void check() {
+            for (int card_id = 1; card_id <= 52; card_id++) {
+                assertEquals(fresh.getLocation(card_id), tracker.getLocation(card_id), Card.label(card_id));
+            }
+        }
+
+        @Override
+        public boolean drawFromOpenDeck(GameState state) {
+            boolean open = greedy.drawFromOpenDeck(state);
+            fresh.observe(state);
+            check();
+            return open;
+        }
+
+        @Override
+        public int chooseDiscard(GameState state) {
+            int card_id = greedy.chooseDiscard(state);
+            fresh.observe(state);
+            check();
+            return card_id;
+        }
+
+        @Override
+        public boolean knock(GameState state) {
+            boolean knock = greedy.knock(state);
+            check();
+            return knock;
+        }
+    }
+
+    @Test
+    void strategiesAreToldOfEveryHand() {
+        CheckedStrategy first = new CheckedStrategy();
+        CheckedStrategy second = new CheckedStrategy();
+        for (long seed = 0; seed < 20; seed++) {
+            first.new_hands = 0;
+            second.new_hands = 0;
+            Match match = new Match(first, second, seed);
+            match.play();
+            assertEquals(match.getHands(), first.new_hands);
+            assertEquals(match.getHands(), second.new_hands);
+        }
+    }
+
+    @Test
+    void tiedMatchesFavourNeitherSeat() {
+        // Nobody ever knocks or keeps a card: every hand runs out of stock and the match ends tied.
+        Strategy passive = new Strategy() {
+            private long hand;
+
+            @Override
+            public boolean drawFromOpenDeck(GameState state) {
+                hand = state.getHand();
+                return false;
+            }
+
+            @Override
+            public int chooseDiscard(GameState state) {
+                return Long.numberOfTrailingZeros(state.getHand() & ~hand) + 1;
+            }
+
+            @Override
+            public boolean knock(GameState state) {
+                return false;
+            }
+        };
+        int[] wins = new int[2];
+        for (long seed = 0; seed < 16; seed++) {
+            Match match = new Match(passive, passive, seed);
+            wins[match.play()]++;
+            assertEquals(Match.MAX_HANDS, match.getHands());
+            assertEquals(0, match.getPoints(0) + match.getPoints(1));
+        }
+        assertTrue(wins[0] > 0 && wins[1] > 0, wins[0] + "/" + wins[1]);
+    }
+}
@@ -0,0 +1,111 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks MeldTable and MeldSolver against the brute-force reference of HandVerifier,
+ * which shares no code with them.
+ */
+class MeldTableTest {
+    private final long[] melds = new long[64];
+
+    /**
+     * Returns a random hand, from the whole deck or, if dense, from four neighbouring faces,
+     * where runs and sets overlap the most.
+     */
+    static long randomHand(SplittableRandom random, int cards, boolean dense) {
+        int low_face = random.nextInt(10);
+        long hand = 0;
+        while (Long.bitCount(hand) < cards) {
+            int index = dense && Long.bitCount(hand) < 14
+                    ? random.nextInt(4) * 13 + low_face + random.nextInt(4)
+                    : random.nextInt(52);
+            hand |= 1L << index;
+        }
+        return hand;
+    }
+
+    @Test
+    void everyHandOfFourCards() {
+        long hand = 0b1111;
+        for (long rank = 0; rank < 270725; rank++) {
+            assertEquals(HandVerifier.referenceDeadwood(hand, melds), MeldTable.deadwood(hand), Long.toHexString(hand));
+            hand = HandVerifier.next(hand);
+        }
+    }
+
+    @Test
+    void randomHandsOfTenAndElevenCards() {
+        SplittableRandom random = new SplittableRandom(14);
+        for (int i = 0; i < 20000; i++) {
+            boolean dense = i % 2 == 0;
+            long ten = randomHand(random, 10, dense);
+            int reference = HandVerifier.referenceDeadwood(ten, melds);
+            assertEquals(reference, MeldTable.deadwood(ten), Long.toHexString(ten));
+            assertEquals(reference, MeldTable.handDeadwood(ten), Long.toHexString(ten));
+            assertEquals(reference, MeldSolver.minDeadwood(ten), Long.toHexString(ten));
+
+            long eleven = randomHand(random, 11, dense);
+            reference = HandVerifier.referenceDeadwood(eleven, melds);
+            assertEquals(reference, MeldTable.handDeadwood(eleven), Long.toHexString(eleven));
+            assertEquals(reference, MeldTable.deadwood(eleven, 1), Long.toHexString(eleven));
+            assertEquals(reference, MeldSolver.minDeadwoodAfterDiscard(eleven), Long.toHexString(eleven));
+        }
+    }
+
+    /**
+     * Checks that the melds of the solver's last layout are disjoint melds of the hand,
+     * and that the cards left out add up to its deadwood.
+     */
+    private static void checkLayout(MeldSolver solver, long hand, int discards, int deadwood) {
+        long melded = 0;
+        for (int m = 0; m < solver.getMeldCount(); m++) {
+            long meld = solver.getMeld(m);
+            assertTrue(HandMask.isMeld(meld), Long.toHexString(meld));
+            assertEquals(0, melded & meld);
+            melded |= meld;
+        }
+        assertEquals(0, melded & solver.getDiscard());
+        assertEquals(discards, Long.bitCount(solver.getDiscard()));
+        assertEquals(hand, hand | melded | solver.getDiscard());
+        assertEquals(deadwood, MeldSolver.weight(hand & ~melded & ~solver.getDiscard()));
+    }
+
+    @Test
+    void solverLaysOutDisjointMeldsWithTheLeastDeadwood() {
+        SplittableRandom random = new SplittableRandom(2);
+        MeldSolver solver = new MeldSolver();
+        for (int i = 0; i < 20000; i++) {
+            int cards = 10 + i % 2;
+            long hand = randomHand(random, cards, i % 4 < 2);
+            int deadwood = solver.solve(hand, cards - 10);
+            checkLayout(solver, hand, cards - 10, deadwood);
+            assertEquals(HandVerifier.referenceDeadwood(hand, melds), deadwood, Long.toHexString(hand));
+        }
+    }
+
+    @Test
+    void solverLaysOutHandsOfAnySize() {
+        SplittableRandom random = new SplittableRandom(3);
+        MeldSolver solver = new MeldSolver();
+        for (int i = 0; i < 2000; i++) {
+            int cards = 12 + random.nextInt(9);
+            long hand = randomHand(random, cards, i % 2 == 0);
+            int discards = i % 4 < 2 ? 1 : 0;
+            int deadwood = solver.solve(hand, discards);
+            checkLayout(solver, hand, discards, deadwood);
+            assertEquals(MeldTable.deadwood(hand, discards), deadwood, Long.toHexString(hand));
+        }
+
+        // Every other face value from ace to jack in three suits: 18 cards in 6 sets.
+        long hand = 0;
+        for (int suit = 0; suit < 3; suit++) {
+            hand |= 0b10101010101L << (suit * 13);
+        }
+        assertEquals(0, solver.solve(hand, 0));
+        checkLayout(solver, hand, 0, 0);
+    }
+}
@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the layout and deadwood caches of PlayerHand across single-card changes.
+ */
+class PlayerHandTest {
+
+    /**
+     * Returns the card with a label such as "3S" or "10H".
+     */
+    static Card card(String label) {
+        for (int card_id = 1; card_id <= 52; card_id++) {
+            if (Card.label(card_id).equals(label)) {
+                return Card.of(card_id);
+            }
+        }
+        throw new IllegalArgumentException(label);
+    }
+
+    static PlayerHand hand(String... labels) {
+        PlayerHand hand = new PlayerHand();
+        for (String label : labels) {
+            hand.addCard(card(label));
+        }
+        return hand;
+    }
+
+    @Test
+    void removingAndAddingBackAMeldedCardLaysTheHandOutAgain() {
+        PlayerHand hand = hand("3S", "3C", "3D", "5S", "5C", "5D", "AS", "2H", "9D", "KC");
+        hand.meld();
+        int deadwood = hand.layoutDeadwood();
+        assertEquals(hand.calculateDeadwood(), deadwood);
+
+        hand.removeCardFromHand(card("3S"));
+        hand.addCard(card("3S"));
+        hand.meld();
+
+        assertNotEquals(-1, hand.layoutDeadwood());
+        assertEquals(deadwood, hand.layoutDeadwood());
+        assertEquals("[(3S 3C 3D) (5S 5C 5D) AS 2H 9D KC]", hand.toString());
+    }
+
+    @Test
+    void addingTheBestDiscardKeepsTheLayout() {
+        PlayerHand hand = hand("3S", "3C", "3D", "5S", "5C", "5D", "AS", "2H", "9D", "QC");
+        hand.meld();
+        hand.addCard(card("KC"));
+        hand.meld();
+
+        assertEquals(hand.calculateDeadwood(), hand.layoutDeadwood());
+        assertEquals("KC", Card.label(hand.idAt(hand.length() - 1)));
+    }
+
+    @Test
+    void randomChangesKeepTheLayoutValid() {
+        SplittableRandom random = new SplittableRandom(7);
+        PlayerHand hand = new PlayerHand();
+        for (int step = 0; step < 200_000; step++) {
+            int card_id = random.nextInt(52) + 1;
+            Card card = Card.of(card_id);
+            if (hand.contains(card)) {
+                hand.removeCardFromHand(card);
+            }
+            else if (hand.length() < 11) {
+                hand.addCard(card);
+            }
+            if (random.nextInt(3) == 0) {
+                hand.meld();
+                assertEquals(hand.calculateDeadwood(), hand.layoutDeadwood(), hand.toString());
+            }
+        }
+    }
+}
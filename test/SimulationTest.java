@@ -0,0 +1,22 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a simulation's reused engines play every game as a new engine would.
+ */
+class SimulationTest {
+
+    @Test
+    void reusedEnginesPlayLikeNewOnes() {
+        Simulation simulation = new Simulation(GreedyStrategy::new, () -> new GreedyStrategy(new CardTracker()), 99);
+        for (long number = 0; number < 300; number++) {
+            GameResult result = simulation.playOne(number);
+            GameResult expected = new GameEngine(new GreedyStrategy(), new GreedyStrategy(new CardTracker()),
+                    simulation.gameSeed(number)).play();
+            assertEquals(expected.getWinner(), result.getWinner(), expected.toString());
+            assertEquals(expected.getPoints(), result.getPoints(), expected.toString());
+            assertEquals(expected.getTurns(), result.getTurns(), expected.toString());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that rank() numbers the canonical hands densely and uniquely, and that the canonical
+ * forms of hands and game states do not change when the suits are permuted.
+ */
+class SuitCanonicalizerTest {
+    // The number of canonical hands of 0 to 5 cards.
+    private final static long[] COUNTS = {1, 13, 169, 1755, 16432, 134459};
+
+    /**
+     * Returns the 24 permutations of the suits, as the suit each suit goes to.
+     */
+    static List<int[]> permutations() {
+        List<int[]> permutations = new ArrayList<>();
+        for (int a = 0; a < 4; a++) {
+            for (int b = 0; b < 4; b++) {
+                for (int c = 0; c < 4; c++) {
+                    int d = 6 - a - b - c;
+                    if (a != b && a != c && b != c && d != a && d != b && d != c) {
+                        permutations.add(new int[] {a, b, c, d});
+                    }
+                }
+            }
+        }
+        return permutations;
+    }
+
+    private static int permuteID(int card_id, int[] to_suit) {
+        return card_id == 0 ? 0 : to_suit[(card_id - 1) / 13] * 13 + (card_id - 1) % 13 + 1;
+    }
+
+    private static long binomial(int n, int k) {
+        long result = 1;
+        for (int i = 0; i < k; i++) {
+            result = result * (n - i) / (i + 1);
+        }
+        return result;
+    }
+
+    @Test
+    void ranksAreDenseAndUnique() {
+        assertEquals(0, SuitCanonicalizer.rank(0));
+        for (int cards = 0; cards < COUNTS.length; cards++) {
+            assertEquals(COUNTS[cards], SuitCanonicalizer.count(cards));
+        }
+
+        for (int cards = 1; cards < COUNTS.length; cards++) {
+            // canonicals[rank]: the canonical hand with that rank, 0 until one is seen.
+            long[] canonicals = new long[(int) SuitCanonicalizer.count(cards)];
+            long hand = (1L << cards) - 1;
+            for (long i = binomial(52, cards); i > 0; i--) {
+                long rank = SuitCanonicalizer.rank(hand);
+                long canonical = SuitCanonicalizer.canonical(hand);
+                assertTrue(rank >= 0 && rank < canonicals.length, Long.toHexString(hand));
+                if (canonicals[(int) rank] == 0) {
+                    canonicals[(int) rank] = canonical;
+                }
+                assertEquals(canonicals[(int) rank], canonical, Long.toHexString(hand));
+                hand = HandVerifier.next(hand);
+            }
+            for (int rank = 0; rank < canonicals.length; rank++) {
+                assertTrue(canonicals[rank] != 0, cards + " cards: no hand has rank " + rank);
+            }
+        }
+    }
+
+    @Test
+    void handsKeepTheirFormUnderEverySuitPermutation() {
+        SplittableRandom random = new SplittableRandom(25);
+        List<int[]> permutations = permutations();
+        for (int i = 0; i < 2000; i++) {
+            long hand = MeldTableTest.randomHand(random, 10 + i % 2, i % 4 < 2);
+            long canonical = SuitCanonicalizer.canonical(hand);
+            long rank = SuitCanonicalizer.rank(hand);
+            assertTrue(rank < SuitCanonicalizer.count(10 + i % 2));
+            for (int[] to_suit : permutations) {
+                long permuted = SuitCanonicalizer.permute(hand, to_suit);
+                assertEquals(canonical, SuitCanonicalizer.canonical(permuted), Long.toHexString(hand));
+                assertEquals(rank, SuitCanonicalizer.rank(permuted), Long.toHexString(hand));
+            }
+        }
+    }
+
+    @Test
+    void gameStatesKeepTheirFormUnderEverySuitPermutation() {
+        SplittableRandom random = new SplittableRandom(26);
+        List<int[]> permutations = permutations();
+        for (int i = 0; i < 2000; i++) {
+            long hand = MeldTableTest.randomHand(random, 10, i % 2 == 0);
+            long pile = 0;
+            for (int cards = random.nextInt(12); cards > 0; cards--) {
+                pile |= 1L << random.nextInt(52);
+            }
+            pile &= ~hand;
+            long known = 0;
+            for (int cards = random.nextInt(4); cards > 0; cards--) {
+                known |= 1L << random.nextInt(52);
+            }
+            known &= ~hand & ~pile;
+            int open = pile == 0 ? 0 : 64 - Long.numberOfLeadingZeros(pile);
+            int drawn = random.nextBoolean() ? 0 : Long.numberOfTrailingZeros(hand) + 1;
+            GameState state = new GameState(hand, pile, known, open, drawn, 20);
+            GameState canonical = SuitCanonicalizer.canonical(state);
+
+            for (int[] to_suit : permutations) {
+                GameState permuted = SuitCanonicalizer.canonical(new GameState(SuitCanonicalizer.permute(hand, to_suit),
+                        SuitCanonicalizer.permute(pile, to_suit), SuitCanonicalizer.permute(known, to_suit),
+                        permuteID(open, to_suit), permuteID(drawn, to_suit), 20));
+                String message = Long.toHexString(hand) + " " + Long.toHexString(pile);
+                assertEquals(canonical.getHand(), permuted.getHand(), message);
+                assertEquals(canonical.getDiscardPile(), permuted.getDiscardPile(), message);
+                assertEquals(canonical.getOpponentKnown(), permuted.getOpponentKnown(), message);
+                assertEquals(canonical.getOpenCardID(), permuted.getOpenCardID(), message);
+                assertEquals(canonical.getDrawnOpenCardID(), permuted.getDrawnOpenCardID(), message);
+                assertEquals(canonical.getStockSize(), permuted.getStockSize(), message);
+            }
+        }
+    }
+}